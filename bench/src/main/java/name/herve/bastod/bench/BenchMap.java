@@ -0,0 +1,207 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import name.herve.bastod.engine.Board;
+import name.herve.bastod.engine.BoardFactory;
+import name.herve.bastod.engine.Engine;
+import name.herve.bastod.engine.Unit;
+import name.herve.bastod.engine.pathfinder.PathFinder;
+import name.herve.bastod.engine.pathfinder.PathFinder.Algorithm;
+import name.herve.bastod.engine.units.Blocking;
+import name.herve.bastod.tools.SLTDException;
+import name.herve.bastod.tools.graph.NoGraph;
+import name.herve.bastod.tools.math.Dimension;
+import name.herve.bastod.tools.math.Vector;
+
+/**
+ * Closed cells of a map used by the benchmarks. The name is either one of the
+ * maps known by {@link BoardFactory} (map_01, * Random, * Custom, ...), one of
+ * the other bundled maps/*.csv files (map_02.csv, ...) or synthetic_WxH for a
+ * larger random grid.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class BenchMap {
+	public final static long SEED = 1864750354l;
+	public final static String CSV = ".csv";
+	public final static String SYNTHETIC = "synthetic_";
+	private final static float SYNTHETIC_DENSITY = 0.2f;
+
+	private List<Vector> closed;
+	private boolean[] closedGrid;
+	private Dimension gridDimension;
+
+	public BenchMap(String name) throws SLTDException {
+		super();
+
+		closed = new ArrayList<Vector>();
+
+		if (name.startsWith(SYNTHETIC)) {
+			String[] wh = name.substring(SYNTHETIC.length()).split("x");
+			gridDimension = new Dimension(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+
+			// the first and last columns are kept open for the queries
+			Random rd = new Random(SEED);
+			for (int x = 1; x < gridDimension.getW() - 1; x++) {
+				for (int y = 0; y < gridDimension.getH(); y++) {
+					if (rd.nextFloat() < SYNTHETIC_DENSITY) {
+						closed.add(new Vector(x, y));
+					}
+				}
+			}
+		} else if (name.endsWith(CSV)) {
+			loadCSV("maps/" + name);
+		} else {
+			BoardFactory boardFactory = new BoardFactory();
+			boardFactory.setSeed(SEED);
+			Board board = boardFactory.loadMap(name);
+			gridDimension = board.getGridDimension();
+
+			for (Unit u : board.getBoardUnits()) {
+				if (u instanceof Blocking) {
+					board.closeOnBoard(u.getPositionOnBoard());
+				}
+			}
+
+			for (int x = 0; x < gridDimension.getW(); x++) {
+				for (int y = 0; y < gridDimension.getH(); y++) {
+					Vector c = new Vector(x, y);
+					if (!board.isOpened(c)) {
+						closed.add(c);
+					}
+				}
+			}
+		}
+
+		closedGrid = new boolean[gridDimension.size()];
+		for (Vector c : closed) {
+			closedGrid[c.getXInt() * gridDimension.getH() + c.getYInt()] = true;
+		}
+	}
+
+	public Board createBoard(Algorithm algo) {
+		Board board = new Board(gridDimension, Engine._SQUARE_SIZE, algo);
+		for (Vector c : closed) {
+			board.closeOnGrid(c.getXInt(), c.getYInt());
+		}
+		board.clearPathFinderCache();
+		return board;
+	}
+
+	public NoGraph createNoGraph() {
+		NoGraph nograph = new NoGraph(gridDimension.getW(), gridDimension.getH(), false);
+		for (Vector c : closed) {
+			nograph.close(c.getXInt(), c.getYInt());
+		}
+		return nograph;
+	}
+
+	public PathFinder createPathFinder(Algorithm algo) {
+		PathFinder pf = new PathFinder(algo, gridDimension, false);
+		for (Vector c : closed) {
+			pf.close(c);
+		}
+		pf.clearCache();
+		return pf;
+	}
+
+	public Dimension getGridDimension() {
+		return gridDimension;
+	}
+
+	// from the middle of each side to every row of the other side, as the
+	// units do, using the first opened cell of each row
+	public List<Vector[]> getQueries(int maxQueries) {
+		List<Vector[]> queries = new ArrayList<Vector[]>();
+
+		int h = gridDimension.getH();
+		int step = Math.max(1, 2 * h / maxQueries);
+
+		Vector s1 = getOpenedOnRow(h / 2, true);
+		Vector s2 = getOpenedOnRow(h / 2, false);
+		for (int ey = 0; ey < h; ey += step) {
+			Vector e1 = getOpenedOnRow(ey, false);
+			Vector e2 = getOpenedOnRow(ey, true);
+			if ((s1 != null) && (e1 != null)) {
+				queries.add(new Vector[] { s1, e1 });
+			}
+			if ((s2 != null) && (e2 != null)) {
+				queries.add(new Vector[] { s2, e2 });
+			}
+		}
+
+		return queries;
+	}
+
+	private Vector getOpenedOnRow(int y, boolean fromLeft) {
+		int w = gridDimension.getW();
+		for (int i = 0; i < w; i++) {
+			int x = fromLeft ? i : w - 1 - i;
+			if (!closedGrid[x * gridDimension.getH() + y]) {
+				return new Vector(x, y);
+			}
+		}
+		return null;
+	}
+
+	private void loadCSV(String fileName) throws SLTDException {
+		InputStream is = BenchMap.class.getClassLoader().getResourceAsStream(fileName);
+		if (is == null) {
+			throw new SLTDException("Unable to find map file '" + fileName + "'");
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+		try {
+			int w = Integer.parseInt(reader.readLine().split(",")[0].trim());
+			int h = Integer.parseInt(reader.readLine().split(",")[0].trim());
+			gridDimension = new Dimension(w, h);
+
+			for (int y = 0; y < h; y++) {
+				String line = reader.readLine();
+				if (line == null) {
+					throw new SLTDException("In '" + fileName + "' - Map line " + (y + 1) + " is missing");
+				}
+				String[] l = line.split(",");
+				for (int x = 0; x < Math.min(l.length, w); x++) {
+					if ("x".equalsIgnoreCase(l[x])) {
+						closed.add(new Vector(x, y));
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new SLTDException(e);
+		} catch (NumberFormatException e) {
+			throw new SLTDException("First lines of '" + fileName + "' must contain the size of the map");
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+}
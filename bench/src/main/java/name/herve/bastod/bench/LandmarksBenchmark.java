@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import name.herve.bastod.engine.pathfinder.PathFinder;
+import name.herve.bastod.engine.pathfinder.PathFinder.Algorithm;
+import name.herve.bastod.tools.SLTDException;
+import name.herve.bastod.tools.math.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Same queries as {@link PathFinderBenchmark}, with and without the landmark
+ * heuristic. The number of nodes expanded per query is printed at the end of
+ * each trial.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LandmarksBenchmark {
+	@Param({ "ASTAR3", "THETASTAR" })
+	public Algorithm algo;
+
+	@Param({ "0", "4", "8" })
+	public int landmarks;
+
+	@Param({ "map_01", "map_01.csv", "map_02.csv", "map_03.csv", "map_04.csv", "* Random", "* Custom", "* Empty", "synthetic_64x64", "synthetic_128x128", "synthetic_512x512" })
+	public String map;
+
+	private long nbQueries;
+	private PathFinder pf;
+	private List<Vector[]> queries;
+
+	@Setup
+	public void setup() throws SLTDException {
+		BenchMap bm = new BenchMap(map);
+		pf = bm.createPathFinder(algo);
+		pf.setLandmarks(landmarks, false);
+		queries = bm.getQueries(32);
+		nbQueries = 0;
+	}
+
+	@Benchmark
+	public void shortestPaths(Blackhole bh) {
+		for (Vector[] q : queries) {
+			bh.consume(pf.shortestPath(q[0], q[1], false));
+		}
+		nbQueries += queries.size();
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (nbQueries > 0) {
+			System.out.println();
+			System.out.println(algo + " " + map + " landmarks=" + landmarks + " : " + (pf.getNbExpanded() / nbQueries) + " nodes expanded per query");
+		}
+	}
+}
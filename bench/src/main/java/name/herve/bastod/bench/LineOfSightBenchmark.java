@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import name.herve.bastod.tools.SLTDException;
+import name.herve.bastod.tools.graph.NoGraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * NoGraph.lineOfSight on random pairs of nodes, with a warm cache and right
+ * after a reset of the cache (the reset itself is part of the measure).
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineOfSightBenchmark {
+	private final static int NB_PAIRS = 1024;
+
+	@Param({ "map_01", "map_01.csv", "* Random", "* Custom", "* Empty", "synthetic_64x64", "synthetic_128x128" })
+	public String map;
+
+	private NoGraph nograph;
+	private int[] s;
+	private int[] sp;
+
+	@Setup
+	public void setup() throws SLTDException {
+		nograph = new BenchMap(map).createNoGraph();
+
+		Random rd = new Random(BenchMap.SEED);
+		s = new int[NB_PAIRS];
+		sp = new int[NB_PAIRS];
+		for (int i = 0; i < NB_PAIRS; i++) {
+			s[i] = rd.nextInt(nograph.size());
+			sp[i] = rd.nextInt(nograph.size());
+		}
+	}
+
+	@Benchmark
+	public void afterReset(Blackhole bh) {
+		nograph.resetLoS();
+		for (int i = 0; i < NB_PAIRS; i++) {
+			bh.consume(nograph.lineOfSight(s[i], sp[i]));
+		}
+	}
+
+	@Benchmark
+	public void cached(Blackhole bh) {
+		for (int i = 0; i < NB_PAIRS; i++) {
+			bh.consume(nograph.lineOfSight(s[i], sp[i]));
+		}
+	}
+}
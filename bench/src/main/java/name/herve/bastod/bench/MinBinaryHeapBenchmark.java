@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * MyMinBinaryHeap used as the open list of the path finders : nodes are added,
+ * some of them get a lower cost, then everything is removed.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinBinaryHeapBenchmark {
+	@Param({ "275", "4096", "16384" })
+	public int size;
+
+	private int[] cost;
+	private int[] initialCost;
+	private int[] lowerCost;
+	private MyMinBinaryHeap heap;
+
+	@Setup
+	public void setup() {
+		Random rd = new Random(BenchMap.SEED);
+		initialCost = new int[size];
+		lowerCost = new int[size];
+		for (int i = 0; i < size; i++) {
+			initialCost[i] = rd.nextInt(1000000);
+			lowerCost[i] = rd.nextInt(initialCost[i] + 1);
+		}
+		cost = new int[size];
+		heap = new MyMinBinaryHeap(size);
+		heap.setCost(cost);
+	}
+
+	@Benchmark
+	public void addAndGet(Blackhole bh) {
+		System.arraycopy(initialCost, 0, cost, 0, size);
+		heap.reset();
+		for (int i = 0; i < size; i++) {
+			heap.add(i);
+		}
+		while (!heap.isEmpty()) {
+			bh.consume(heap.get());
+		}
+	}
+
+	@Benchmark
+	public void addDecreaseAndGet(Blackhole bh) {
+		System.arraycopy(initialCost, 0, cost, 0, size);
+		heap.reset();
+		for (int i = 0; i < size; i++) {
+			heap.add(i);
+		}
+		for (int i = 0; i < size; i += 2) {
+			cost[i] = lowerCost[i];
+			heap.updatedCostAtIndex(heap.getIndex(i));
+		}
+		while (!heap.isEmpty()) {
+			bh.consume(heap.get());
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import name.herve.bastod.engine.Board;
+import name.herve.bastod.engine.pathfinder.PathFinder.Algorithm;
+import name.herve.bastod.tools.SLTDException;
+import name.herve.bastod.tools.graph.Path;
+import name.herve.bastod.tools.math.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * PathFinder.smoothOnBoard (through Board.smoothPath) with the same parameters
+ * as the engine, on precomputed paths.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmoothingBenchmark {
+	@Param({ "THETASTAR", "JPS", "ASTAR3" })
+	public Algorithm algo;
+
+	@Param({ "map_01", "map_01.csv", "map_02.csv", "map_03.csv", "map_04.csv", "* Random", "* Custom", "synthetic_64x64" })
+	public String map;
+
+	private Board board;
+	private List<Path> paths;
+	private List<Vector> starts;
+
+	@Setup
+	public void setup() throws SLTDException {
+		BenchMap bm = new BenchMap(map);
+		board = bm.createBoard(algo);
+		paths = new ArrayList<Path>();
+		starts = new ArrayList<Vector>();
+		for (Vector[] q : bm.getQueries(32)) {
+			Vector s = board.fromGridToBoard(q[0]);
+			Path path = board.shortestPathOnBoard(s, board.fromGridToBoard(q[1]));
+			if (path != null) {
+				starts.add(s);
+				paths.add(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void smoothPaths(Blackhole bh) {
+		for (int i = 0; i < paths.size(); i++) {
+			bh.consume(board.smoothPath(starts.get(i), paths.get(i), board.getSquareSize(), 3));
+		}
+	}
+}
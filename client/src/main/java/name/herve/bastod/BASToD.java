@@ -40,6 +40,7 @@ import com.badlogic.gdx.graphics.Texture;
 public class BASToD extends AbstractGame {
 	public final static boolean ZOOM_AND_SCROLL_ACTIVATED = false;
 	public final static boolean DRAW_PATH_ACTIVATED = false;
+	public final static long FIXED_TIME_STEP_MILLI = 10;
 
 	public static void main(String[] args) {
 		BASToD sltd = new BASToD(Engine._VIEWPORT_WIDTH, Engine._VIEWPORT_HEIGHT);
@@ -109,8 +109,9 @@ public class SpriteManager extends AbstractDisplayManager {
 	}
 
 	private void render(Shot s) {
-		float x = Engine._SP_SIDE + s.getPositionOnBoard().getX();
-		float y = Engine._SP_BOTTOM + s.getPositionOnBoard().getY();
+		Vector p = engine.getRenderPositionOnBoard(s);
+		float x = Engine._SP_SIDE + p.getX();
+		float y = Engine._SP_BOTTOM + p.getY();
 
 		drawWithOffset(GUIResources.getInstance().getSprite("shot", s.getPlayer().getColor()), x, y);
 	}
@@ -155,8 +156,9 @@ public class SpriteManager extends AbstractDisplayManager {
 	}
 	
 	private void render(Unit u) {
-		float x = Engine._SP_SIDE + u.getPositionOnBoard().getX();
-		float y = Engine._SP_BOTTOM + u.getPositionOnBoard().getY();
+		Vector p = engine.getRenderPositionOnBoard(u);
+		float x = Engine._SP_SIDE + p.getX();
+		float y = Engine._SP_BOTTOM + p.getY();
 
 		drawWithOffset(getSprite(u), x, y);
 
@@ -21,6 +21,7 @@ package name.herve.bastod.gui.screen.menu;
 import java.util.ArrayList;
 import java.util.List;
 
+import name.herve.bastod.BASToD;
 import name.herve.bastod.engine.Board;
 import name.herve.bastod.engine.BoardFactory;
 import name.herve.bastod.engine.Engine;
@@ -97,6 +98,8 @@ public class MenuScreen extends AbstractScreen implements GUIButtonListener {
 				Game game = GameFactory.createGame(gt.getSelected(), getGameApplication().getGameConf(), players, board);
 				Engine engine = new Engine(seed);
 				engine.setGame(game);
+				engine.setFixedTimeStepMilli(BASToD.FIXED_TIME_STEP_MILLI);
+				engine.setRenderInterpolation(true);
 				GameScreen gs = new GameScreen(getGameApplication(), engine);
 				setChangeScreenOnNextRender(gs);
 			} catch (SLTDException e) {
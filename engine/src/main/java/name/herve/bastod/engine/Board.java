@@ -36,17 +36,27 @@ import name.herve.bastod.tools.math.Vector;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class Board {
-	public static Vector b2g(Vector p, Dimension gridDimension, int squareSize) {
-		float x = p.getX() / squareSize;
-		float y = p.getY() / squareSize;
+	public final static Algorithm DEFAULT_ALGORITHM = Algorithm.THETASTAR;
 
-		if ((x >= 0) && (y >= 0) && (x < gridDimension.getW()) && (y < gridDimension.getH())) {
-			return new Vector((int) x, (int) y);
+	public static Vector b2g(Vector p, Dimension gridDimension, int squareSize) {
+		if (isOnGrid(p.getX(), p.getY(), gridDimension, squareSize)) {
+			return new Vector(b2g(p.getX(), squareSize), b2g(p.getY(), squareSize));
 		}
 
 		return null;
 	}
 
+	// grid coordinate of a board coordinate, without any check
+	public static int b2g(float onBoard, int squareSize) {
+		return (int) (onBoard / squareSize);
+	}
+
+	public static boolean isOnGrid(float xOnBoard, float yOnBoard, Dimension gridDimension, int squareSize) {
+		float x = xOnBoard / squareSize;
+		float y = yOnBoard / squareSize;
+		return (x >= 0) && (y >= 0) && (x < gridDimension.getW()) && (y < gridDimension.getH());
+	}
+
 	public static Path g2b(Path p, int squareSize) {
 		Path p2 = new Path();
 		for (Vector pos : p) {
@@ -70,11 +80,16 @@ public class Board {
 	private Map<Integer, List<Vector>> towerPositions;
 
 	public Board(Dimension gridDimension, int squareSize) {
+		this(gridDimension, squareSize, DEFAULT_ALGORITHM);
+	}
+
+	public Board(Dimension gridDimension, int squareSize, Algorithm algo) {
 		super();
 		this.gridDimension = gridDimension;
 		this.squareSize = squareSize;
 		this.boardDimension = new Dimension(gridDimension.getW() * squareSize, gridDimension.getH() * squareSize);
-		this.pathFinder = new PathFinder(Algorithm.THETASTAR, gridDimension, false);
+		this.pathFinder = new PathFinder(algo, gridDimension, false);
+		pathFinder.setSquareSize(squareSize);
 		boardUnits = new ArrayList<Unit>();
 		startPositions = new HashMap<Integer, Vector>();
 		endPositions = new HashMap<Integer, List<Vector>>();
@@ -97,6 +112,10 @@ public class Board {
 		map.get(index).add(pos);
 	}
 
+	public void addSeparatorsOnGrid(Vector s, Vector e) {
+		pathFinder.addSeparators(s, e);
+	}
+
 	public void addTowerPosition(int index, Vector pos) {
 		addPosition(towerPositions, index, pos);
 	}
@@ -111,6 +130,14 @@ public class Board {
 		pathFinder.clearCache();
 	}
 
+	public void clearPathFinderCache(Vector onGrid) {
+		pathFinder.clearCache(onGrid);
+	}
+
+	public void clearSeparators() {
+		pathFinder.clearSeparators();
+	}
+
 	public void closeOnBoard(Vector p) {
 		pathFinder.close(fromBoardToGrid(p));
 	}
@@ -159,10 +186,23 @@ public class Board {
 		return gridDimension;
 	}
 
+	// only with a flow field or the reverse search, on grid
+	public Vector getNearestEndPosition(Player p, Vector fromOnBoard) {
+		Vector sg = fromBoardToGrid(fromOnBoard);
+		if (sg == null) {
+			return null;
+		}
+		return pathFinder.getNearestTarget(sg, getEndPositions(p));
+	}
+
 	public int getNbStartPositions() {
 		return startPositions.size();
 	}
 
+	public PathFinder getPathFinder() {
+		return pathFinder;
+	}
+
 	public int getSquareSize() {
 		return squareSize;
 	}
@@ -183,6 +223,28 @@ public class Board {
 		return pathFinder.isOpened(p);
 	}
 
+	// the part of the path still ahead : from the current position to the
+	// waypoint at fromIndex, then the following ones
+	public boolean isCrossing(Vector fromOnBoard, Path pathOnBoard, int fromIndex, Vector onGrid) {
+		Vector previous = fromBoardToGrid(fromOnBoard);
+		for (int i = fromIndex; i < pathOnBoard.size(); i++) {
+			Vector current = fromBoardToGrid(pathOnBoard.get(i));
+			if (pathFinder.isCrossing(previous, current, onGrid)) {
+				return true;
+			}
+			previous = current;
+		}
+		return false;
+	}
+
+	public boolean isSeparatorOnGrid(Vector p) {
+		return pathFinder.isSeparator(p);
+	}
+
+	public boolean isUsingFlowField() {
+		return pathFinder.isUsingFlowField();
+	}
+
 	public boolean isPathAvailableOnGrid(Vector s, Vector e, Vector excluding) {
 		return pathFinder.isPathAvailable(s, e, excluding);
 	}
@@ -205,18 +267,53 @@ public class Board {
 		Vector se = fromBoardToGrid(e);
 
 		if (sg != null && se != null) {
+			if (pathFinder.isSnapshotSearchSupported()) {
+				return pathFinder.shortestPathOnBoard(sg, se);
+			}
 			Path p = shortestPathOnGrid(sg, se);
-			p = fromGridToBoard(p);
+			if (p != null) {
+				p = fromGridToBoard(p);
+			}
 			return p;
 		}
 		
 		return null;
 	}
 
+	public Path shortestPathOnBoard(Vector s, List<Vector> targetsOnGrid) {
+		Vector sg = fromBoardToGrid(s);
+
+		if (sg != null) {
+			Path p = pathFinder.shortestPath(sg, targetsOnGrid);
+			if (p != null) {
+				p = fromGridToBoard(p);
+			}
+			return p;
+		}
+
+		return null;
+	}
+
 	public Path shortestPathOnGrid(Vector s, Vector e) {
 		return pathFinder.shortestPath(s, e, true);
 	}
 
+	// the path from s to e, smoothed, which may be shared with other units
+	public Path smoothedPathOnBoard(Vector s, Vector e, float r, int nbstep) {
+		Vector sg = fromBoardToGrid(s);
+		Vector se = fromBoardToGrid(e);
+
+		if ((sg != null) && (se != null) && pathFinder.isSnapshotSearchSupported()) {
+			return pathFinder.smoothedPathOnBoard(s, sg, se, r, nbstep);
+		}
+
+		Path p = shortestPathOnBoard(s, e);
+		if (p != null) {
+			p = smoothPath(s, p, r, nbstep);
+		}
+		return p;
+	}
+
 	public Path smoothPath(Vector sn, Path path, float r, int nbstep) {
 		return pathFinder.smoothOnBoard(sn, path, r, nbstep);
 	}
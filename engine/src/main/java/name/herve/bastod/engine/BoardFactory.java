@@ -20,10 +20,9 @@ package name.herve.bastod.engine;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -32,6 +31,7 @@ import java.util.List;
 import java.util.Random;
 
 import name.herve.bastod.engine.buildings.Wall;
+import name.herve.bastod.engine.pathfinder.PathFinder.Algorithm;
 import name.herve.bastod.tools.SLTDException;
 import name.herve.bastod.tools.math.Dimension;
 import name.herve.bastod.tools.math.Vector;
@@ -52,10 +52,14 @@ public class BoardFactory {
 	private final static String MAP_B2 = "b2";
 	private final static String MAP_X = "x";
 
+	private Algorithm algorithm;
+	private boolean reverseSearch;
 	private long seed;
 
 	public BoardFactory() {
 		super();
+		algorithm = Board.DEFAULT_ALGORITHM;
+		reverseSearch = false;
 	}
 
 	private void addWall(Board board, int x, int y) {
@@ -69,7 +73,11 @@ public class BoardFactory {
 	}
 
 	private Board createBoard() throws SLTDException {
-		return new Board(new Dimension(Engine.GRID_WIDTH, Engine.GRID_HEIGHT), Engine._SQUARE_SIZE);
+		Board board = new Board(new Dimension(Engine.GRID_WIDTH, Engine.GRID_HEIGHT), Engine._SQUARE_SIZE, algorithm);
+		if (reverseSearch) {
+			board.getPathFinder().setReverseSearch(true);
+		}
+		return board;
 	}
 
 	public List<String> getAvailableMaps(boolean full) throws SLTDException {
@@ -203,11 +211,10 @@ public class BoardFactory {
 
 		BufferedReader reader = null;
 
+		// read through the URL so that maps can also be loaded from a jar
 		try {
-			reader = new BufferedReader(new FileReader(new File(url.toURI())));
-		} catch (URISyntaxException e) {
-			throw new SLTDException(e);
-		} catch (FileNotFoundException e) {
+			reader = new BufferedReader(new InputStreamReader(url.openStream()));
+		} catch (IOException e) {
 			throw new SLTDException(e);
 		}
 
@@ -388,6 +395,15 @@ public class BoardFactory {
 		}
 	}
 
+	public void setAlgorithm(Algorithm algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	// see PathFinder.setReverseSearch()
+	public void setReverseSearch(boolean reverseSearch) {
+		this.reverseSearch = reverseSearch;
+	}
+
 	public void setSeed(long seed) {
 		this.seed = seed;
 	}
@@ -19,19 +19,23 @@
 package name.herve.bastod.engine;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import name.herve.bastod.engine.EngineEvent.Type;
+import name.herve.bastod.engine.buildings.TowerShot;
+import name.herve.bastod.engine.pathfinder.PathFinder;
+import name.herve.bastod.engine.pathfinder.PathService;
 import name.herve.bastod.engine.units.Blocking;
 import name.herve.bastod.engine.units.Destructible;
 import name.herve.bastod.engine.units.Firing;
 import name.herve.bastod.engine.units.Mobile;
 import name.herve.bastod.engine.units.Spawning;
+import name.herve.bastod.engine.units.Tank;
 import name.herve.bastod.tools.Constants;
 import name.herve.bastod.tools.graph.Path;
 import name.herve.bastod.tools.math.Dimension;
@@ -41,6 +45,32 @@ import name.herve.bastod.tools.math.Vector;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class Engine {
+	private class FireBody extends ParallelStep.Body {
+		private Player player;
+		private TimingWheel<Firing> schedule;
+
+		@Override
+		void run(int i) {
+			Firing f = schedule.getReady(i);
+			stepFlags[i] = f.isAbleToFire(game.getNow());
+			if (stepFlags[i]) {
+				f.acquireTarget(player.getEnemy());
+			}
+		}
+	}
+
+	private class MoveBody extends ParallelStep.Body {
+		private long delta;
+		private UnitView<Mobile> mobiles;
+
+		@Override
+		void run(int i) {
+			if (stepFlags[i]) {
+				mobiles.get(i).move(delta);
+			}
+		}
+	}
+
 	public final static String _IMPROVE = "improve.";
 
 	public final static int _VIEWPORT_WIDTH = 800;
@@ -85,8 +115,22 @@ public class Engine {
 
 	public final static boolean PRECOMPUTE_OPEN_BUILD_POSITIONS = false;
 
-	private int cacheH;
-	private Boolean[] cachePathAvailableOnGrid;
+	private long accumulator;
+	private boolean separatorsUpToDate;
+	// reused at each tick
+	private List<Destructible> destroyedUnits;
+	private List<Mobile> mobilesWithTargetReached;
+	private List<Unit> newUnits;
+	private List<Shot> shotsWithTargetReached;
+	private Map<OnBoard, Vector> sparePositionsOnBoard;
+	private boolean[] stepFlags;
+	private FireBody fireBody;
+	private MoveBody moveBody;
+	private ParallelStep parallel;
+	private Map<Mobile, PathService.Request> pathRequests;
+	private PlanningScheduler planning;
+	private PathService pathService;
+	private long fixedTimeStepNano;
 	private Game game;
 	private List<EngineListener> listeners;
 
@@ -94,6 +138,8 @@ public class Engine {
 	private Random rd;
 	private float speed;
 	private boolean paused;
+	private Map<OnBoard, Vector> previousPositionsOnBoard;
+	private boolean renderInterpolation;
 
 	private boolean started;
 
@@ -103,6 +149,23 @@ public class Engine {
 		speed = 1;
 		started = false;
 		listeners = new ArrayList<EngineListener>();
+		previousPositionsOnBoard = new IdentityHashMap<OnBoard, Vector>();
+		sparePositionsOnBoard = new IdentityHashMap<OnBoard, Vector>();
+		destroyedUnits = new ArrayList<Destructible>();
+		mobilesWithTargetReached = new ArrayList<Mobile>();
+		newUnits = new ArrayList<Unit>();
+		shotsWithTargetReached = new ArrayList<Shot>();
+		fixedTimeStepNano = 0;
+		accumulator = 0;
+		renderInterpolation = false;
+		parallel = null;
+		pathService = null;
+		planning = null;
+		pathRequests = new IdentityHashMap<Mobile, PathService.Request>();
+		separatorsUpToDate = false;
+		stepFlags = new boolean[16];
+		fireBody = new FireBody();
+		moveBody = new MoveBody();
 	}
 
 	public boolean addBoardUnit(Unit e) {
@@ -115,31 +178,47 @@ public class Engine {
 
 	private void clearPathFinderCache() {
 		game.getBoard().clearPathFinderCache();
+		if (planning != null) {
+			planning.setLastChangeOnBoard(null);
+		}
 
 		for (Player p : game.getPlayers()) {
-			for (Unit u : p.getUnits()) {
-				if (u instanceof Mobile) {
-					Mobile m = (Mobile) u;
-					m.setPath(null);
-				}
+			UnitView<Mobile> mobiles = p.getMobiles();
+			for (int i = 0; i < mobiles.size(); i++) {
+				mobiles.get(i).setPath(null);
 			}
 		}
 
-		if (!PRECOMPUTE_OPEN_BUILD_POSITIONS) {
-			if (cachePathAvailableOnGrid == null) {
-				cachePathAvailableOnGrid = new Boolean[getGridDimension().size()];
-				cacheH = getGridDimension().getH();
-			}
+		clearPathAvailableCache();
+	}
 
-			Arrays.fill(cachePathAvailableOnGrid, null);
+	private void clearPathFinderCache(Vector closedOnGrid) {
+		game.getBoard().clearPathFinderCache(closedOnGrid);
+		if (planning != null) {
+			planning.setLastChangeOnBoard(fromGridToBoard(closedOnGrid));
 		}
 
+		for (Player p : game.getPlayers()) {
+			UnitView<Mobile> mobiles = p.getMobiles();
+			for (int i = 0; i < mobiles.size(); i++) {
+				Mobile m = mobiles.get(i);
+				if ((m.getPath() != null) && game.getBoard().isCrossing(m.getPositionOnBoard(), m.getPath(), m.getNextWaypoint(), closedOnGrid)) {
+					m.setPath(null);
+				}
+			}
+		}
+
+		clearPathAvailableCache();
+	}
+
+	private void clearPathAvailableCache() {
+		separatorsUpToDate = false;
 	}
 
 	public void closeOnBoard(Vector p, boolean clearCacheAndWarn) {
 		game.getBoard().closeOnBoard(p);
 		if (clearCacheAndWarn) {
-			clearPathFinderCache();
+			clearPathFinderCache(fromBoardToGrid(p));
 			if (PRECOMPUTE_OPEN_BUILD_POSITIONS) {
 				computeOpenedBuildPositions();
 			}
@@ -150,15 +229,13 @@ public class Engine {
 	private void computeOpenedBuildPositions() {
 		openedBuildPositions = new ArrayList<Vector>();
 
-		Player aPlayer = game.getPlayers().iterator().next();
-		Vector p1 = game.getBoard().fromBoardToGrid(aPlayer.getStartPositionOnBoard());
-		Vector p2 = game.getBoard().fromBoardToGrid(aPlayer.getEnemyPositionOnBoard());
+		computeSeparators();
 
 		for (Player player : game.getPlayers()) {
 			List<Vector> bp = game.getBoard().getBuildPositions(player);
 			if (bp != null) {
 				for (Vector pos : bp) {
-					if (game.getBoard().isOpened(pos) && game.getBoard().isPathAvailableOnGrid(p1, p2, pos)) {
+					if (game.getBoard().isOpened(pos) && !game.getBoard().isSeparatorOnGrid(pos)) {
 						openedBuildPositions.add(pos);
 					}
 				}
@@ -166,6 +243,58 @@ public class Engine {
 		}
 	}
 
+	// one pass per player to find the cells that would cut its way to the
+	// enemy, instead of one path search per queried cell
+	private void computeSeparators() {
+		game.getBoard().clearSeparators();
+		for (Player p : game.getPlayers()) {
+			Vector start = game.getBoard().fromBoardToGrid(p.getStartPositionOnBoard());
+			Vector enemy = game.getBoard().fromBoardToGrid(p.getEnemyPositionOnBoard());
+			game.getBoard().addSeparatorsOnGrid(start, enemy);
+		}
+		separatorsUpToDate = true;
+	}
+
+	private void deliverPaths() {
+		Board board = game.getBoard();
+		PathFinder pathFinder = board.getPathFinder();
+
+		PathService.Request r = null;
+		while ((r = pathService.poll()) != null) {
+			Mobile m = (Mobile) r.getOwner();
+			if (pathRequests.get(m) != r) {
+				continue;
+			}
+			pathRequests.remove(m);
+
+			// searched again inline, nothing is put in the cache
+			if (r.isFailed()) {
+				System.err.println("WARNING : Path search failed for " + m + " : " + r.getFailure());
+				if ((m.getPath() == null) && (m.getTargetOnBoard() != null)) {
+					planPathToTarget(m);
+				}
+				continue;
+			}
+
+			// the board has changed in between, the unit will ask again
+			if (r.getGraphVersion() != pathFinder.getGraphVersion()) {
+				continue;
+			}
+
+			pathFinder.putInCache(r.getStartOnGrid(), r.getEndOnGrid(), r.getResult());
+
+			if ((m.getPath() == null) && (m.getTargetOnBoard() != null) && r.getEndOnGrid().equals(board.fromBoardToGrid(m.getTargetOnBoard()))) {
+				planPathToTarget(m);
+			}
+		}
+	}
+
+	private void ensureStepFlags(int size) {
+		if (stepFlags.length < size) {
+			stepFlags = new boolean[Math.max(size, 2 * stepFlags.length)];
+		}
+	}
+
 	public Vector fromBoardToGrid(Vector p) {
 		return game.getBoard().fromBoardToGrid(p);
 	}
@@ -210,6 +339,18 @@ public class Engine {
 		return game.getGridSquareSize();
 	}
 
+	public long getFixedTimeStepMilli() {
+		return fixedTimeStepNano / Constants.NANO_MILLI;
+	}
+
+	// fraction of the next tick already elapsed, in [0, 1[
+	public float getInterpolationAlpha() {
+		if (fixedTimeStepNano == 0) {
+			return 1f;
+		}
+		return (float) accumulator / (float) fixedTimeStepNano;
+	}
+
 	public long getNow() {
 		return game.getNow();
 	}
@@ -234,10 +375,25 @@ public class Engine {
 		return game.getShots();
 	}
 
+	// position interpolated between the two last ticks, for rendering
+	public Vector getRenderPositionOnBoard(OnBoard o) {
+		Vector current = o.getPositionOnBoard();
+		Vector previous = previousPositionsOnBoard.get(o);
+		if (previous == null) {
+			return current;
+		}
+		float alpha = getInterpolationAlpha();
+		return new Vector(previous.getX() + (current.getX() - previous.getX()) * alpha, previous.getY() + (current.getY() - previous.getY()) * alpha);
+	}
+
 	public float getSpeed() {
 		return speed;
 	}
 
+	public boolean isFixedTimeStep() {
+		return fixedTimeStepNano > 0;
+	}
+
 	public boolean isGameOver() {
 		return game.isOver();
 	}
@@ -267,19 +423,11 @@ public class Engine {
 				return false;
 			}
 
-			int idx = v.getXInt() * cacheH + v.getYInt();
-			if (cachePathAvailableOnGrid[idx] == null) {
-				Player aPlayer = game.getPlayers().iterator().next();
-				Vector p1 = game.getBoard().fromBoardToGrid(aPlayer.getStartPositionOnBoard());
-				Vector p2 = game.getBoard().fromBoardToGrid(aPlayer.getEnemyPositionOnBoard());
-
-				cachePathAvailableOnGrid[idx] = game.getBoard().isPathAvailableOnGrid(p1, p2, v);
-
-				// System.out.println("cachePathAvailableOnGrid["+v+"] = " +
-				// cachePathAvailableOnGrid[idx]);
+			if (!separatorsUpToDate) {
+				computeSeparators();
 			}
 
-			return cachePathAvailableOnGrid[idx];
+			return !game.getBoard().isSeparatorOnGrid(v);
 		}
 	}
 
@@ -287,6 +435,10 @@ public class Engine {
 		return game.getBoard().isOpened(p);
 	}
 
+	public boolean isParallelStep() {
+		return parallel != null;
+	}
+
 	public boolean isStarted() {
 		return started;
 	}
@@ -295,10 +447,137 @@ public class Engine {
 		return game.lineOfSight(s, sp);
 	}
 
+	private void planPath(Player p, Mobile m) {
+		Board board = game.getBoard();
+		if (board.isUsingFlowField()) {
+			Path path = board.shortestPathOnBoard(m.getPositionOnBoard(), board.getEndPositions(p));
+			setPath(m, path, (path != null) ? board.smoothPath(m.getPositionOnBoard(), path, getGridSquareSize(), 3) : null);
+		} else if ((pathService != null) && board.getPathFinder().isWorkerSearchSupported()) {
+			requestPath(m);
+		} else {
+			planPathToTarget(m);
+		}
+	}
+
+	// both paths may be shared with the other units going the same way
+	private void planPathToTarget(Mobile m) {
+		Board board = game.getBoard();
+		Path path = board.shortestPathOnBoard(m.getPositionOnBoard(), m.getTargetOnBoard());
+		Path smoothed = null;
+		if (path != null) {
+			smoothed = board.smoothedPathOnBoard(m.getPositionOnBoard(), m.getTargetOnBoard(), getGridSquareSize(), 3);
+		}
+		setPath(m, path, smoothed);
+	}
+
+	// back to the pool of the player, nothing may keep it past this point
+	private void releaseUnit(Player p, Unit u) {
+		if (u instanceof Tank) {
+			Tank t = (Tank) u;
+			pathRequests.remove(t);
+			if (planning != null) {
+				planning.forget(t);
+			}
+			p.getTankPool().release(t);
+		}
+	}
+
 	public boolean removeListener(EngineListener l) {
 		return listeners.remove(l);
 	}
 
+	private void removeMobilesWithTargetReached(Player p) {
+		for (Mobile m : mobilesWithTargetReached) {
+			if (m instanceof Destructible) {
+				((Destructible) m).setTargetable(false);
+			}
+			p.removeUnit(m);
+			p.addScore(m.getScoreValue());
+			p.getEnemy().removeScore(m.getScoreValue());
+			p.getStats().incNbUnitsCrossed();
+			releaseUnit(p, m);
+		}
+		mobilesWithTargetReached.clear();
+	}
+
+	// the unit waits until its path is delivered
+	private void requestPath(Mobile m) {
+		if (pathRequests.containsKey(m)) {
+			return;
+		}
+
+		Board board = game.getBoard();
+		Vector s = board.fromBoardToGrid(m.getPositionOnBoard());
+		Vector e = board.fromBoardToGrid(m.getTargetOnBoard());
+		if ((s == null) || (e == null) || board.getPathFinder().isCached(s, e)) {
+			planPathToTarget(m);
+		} else {
+			pathRequests.put(m, pathService.submit(m, board.getPathFinder(), s, e));
+		}
+	}
+
+	// 0 to go back to the variable time step, where each call to step() is a
+	// single tick of the given duration
+	public void setFixedTimeStepMilli(long fixedTimeStepMilli) {
+		this.fixedTimeStepNano = fixedTimeStepMilli * Constants.NANO_MILLI;
+		accumulator = 0;
+		previousPositionsOnBoard.clear();
+	}
+
+	public void setParallelPool(ForkJoinPool pool) {
+		setParallelPool(pool, ParallelStep.DEFAULT_GRAIN);
+	}
+
+	// null to go back to the sequential step. Unit moves and target
+	// acquisitions are spread on the pool, then their side effects are applied
+	// in the same order as the sequential step, so that both give the same game
+	public void setParallelPool(ForkJoinPool pool, int grain) {
+		if (pool == null) {
+			parallel = null;
+		} else {
+			parallel = new ParallelStep(pool);
+			parallel.setGrain(grain);
+		}
+	}
+
+	private void setPath(Mobile m, Path path, Path smoothed) {
+		if (path != null) {
+			m.setPath(smoothed);
+			m.setUnsmoothedPath(path);
+		} else {
+			System.err.println("WARNING : Unable to find a path for " + m + " ! ");
+		}
+	}
+
+	// 0 to plan the paths inline. Otherwise the missing paths are searched by
+	// this number of worker threads and the units wait for them, so that a
+	// board change does not stall the step, but the games are no longer
+	// reproducible. With the next hop table or the reverse search, the paths
+	// are still planned inline
+	public void setPathWorkers(int nbWorkers) {
+		if (pathService != null) {
+			pathService.shutdown();
+			pathService = null;
+			pathRequests.clear();
+		}
+		if (nbWorkers > 0) {
+			pathService = new PathService(nbWorkers);
+		}
+	}
+
+	// 0 and 0 to plan all the missing paths as soon as they are needed.
+	// Otherwise, at most maxSearches searches (0 for no limit) are done in a
+	// tick, or until maxNanos (0 for no limit) are spent, and the other units
+	// wait. Only a limit on the number of searches keeps the games
+	// reproducible
+	public void setPlanningBudget(int maxSearches, long maxNanos) {
+		if ((maxSearches > 0) || (maxNanos > 0)) {
+			planning = new PlanningScheduler(maxSearches, maxNanos);
+		} else {
+			planning = null;
+		}
+	}
+
 	public void setGame(Game game) {
 		this.game = game;
 	}
@@ -308,6 +587,13 @@ public class Engine {
 		warnListeners(Type.SPAW_MODIFIED, p);
 	}
 
+	// keeps the positions before the last tick, to be used with
+	// getRenderPositionOnBoard()
+	public void setRenderInterpolation(boolean renderInterpolation) {
+		this.renderInterpolation = renderInterpolation;
+		previousPositionsOnBoard.clear();
+	}
+
 	public void setSpeed(float speed) {
 		this.speed = speed;
 	}
@@ -332,6 +618,10 @@ public class Engine {
 
 		clearPathFinderCache();
 
+		for (Player p : game.getPlayers()) {
+			p.setUnitsIndex(new SpatialIndex(getGridDimension(), getGridSquareSize()));
+		}
+
 		if (PRECOMPUTE_OPEN_BUILD_POSITIONS) {
 			computeOpenedBuildPositions();
 		}
@@ -342,23 +632,56 @@ public class Engine {
 	public void step(long deltaNano) {
 		if (!isPaused()) {
 			deltaNano *= speed;
-			game.addNow(deltaNano);
 
-			for (Player p : getPlayers()) {
-				p.startNewStep(getNow());
-				p.gatherActions(game.getNow());
+			if (isFixedTimeStep()) {
+				accumulator += deltaNano;
+				while ((accumulator >= fixedTimeStepNano) && !isGameOver()) {
+					if (renderInterpolation) {
+						savePreviousPositions();
+					}
+					tick(fixedTimeStepNano);
+					accumulator -= fixedTimeStepNano;
+				}
+			} else {
+				tick(deltaNano);
 			}
+		}
+	}
+
+	private void savePreviousPositions() {
+		// the vectors of the previous tick are reused
+		Map<OnBoard, Vector> old = previousPositionsOnBoard;
+		previousPositionsOnBoard = sparePositionsOnBoard;
+		sparePositionsOnBoard = old;
+		previousPositionsOnBoard.clear();
+
+		for (Player p : getPlayers()) {
+			UnitView<Mobile> mobiles = p.getMobiles();
+			for (int i = 0; i < mobiles.size(); i++) {
+				savePreviousPosition(mobiles.get(i));
+			}
+		}
+		for (Shot s : getShots()) {
+			savePreviousPosition(s);
+		}
+	}
 
-			stepDoPlayerActions();
-			stepManageResources(deltaNano);
-			stepSpawnUnits();
-			stepMoveUnits(deltaNano);
-			stepFireUnits();
-			stepMoveShots(deltaNano);
-			stepCheck();
+	private void savePreviousPosition(OnBoard o) {
+		Vector v = sparePositionsOnBoard.remove(o);
+		if (v == null) {
+			v = o.getPositionOnBoard().copy();
+		} else {
+			v.set(o.getPositionOnBoard());
+		}
+		previousPositionsOnBoard.put(o, v);
+	}
 
-			for (Player p : getPlayers()) {
-				p.endStep(getNow());
+	// the turrets follow their targets at each tick, reloading or not
+	private void stepAimUnits() {
+		for (Player p : getPlayers()) {
+			UnitView<Firing> firings = p.getFirings();
+			for (int i = 0; i < firings.size(); i++) {
+				firings.get(i).updateWeapons();
 			}
 		}
 	}
@@ -368,25 +691,28 @@ public class Engine {
 			if (p.getScore() <= 0) {
 				game.setOver(true);
 			}
-			List<Destructible> destroyedUnits = new ArrayList<Destructible>();
-			for (Unit u : p.getUnits()) {
-				if (u instanceof Destructible) {
-					Destructible d = (Destructible) u;
-					if (!d.isAlive()) {
-						destroyedUnits.add(d);
-					}
+			destroyedUnits.clear();
+			UnitView<Destructible> destructibles = p.getDestructibles();
+			for (int i = 0; i < destructibles.size(); i++) {
+				Destructible d = destructibles.get(i);
+				if (!d.isAlive()) {
+					destroyedUnits.add(d);
 				}
 			}
 			for (Destructible d : destroyedUnits) {
 				p.removeUnit(d);
 				p.getStats().incNbUnitsLost();
+				releaseUnit(p, d);
 			}
+			destroyedUnits.clear();
 		}
 	}
 
 	private void stepDoPlayerActions() {
 		for (Player p : getPlayers()) {
-			for (PlayerAction action : p.getActions()) {
+			List<PlayerAction> actions = p.getActions();
+			for (int i = 0; i < actions.size(); i++) {
+				PlayerAction action = actions.get(i);
 				switch (action.getAction()) {
 				case START_SPAWN:
 					setSpawn(action.getPlayer(), true);
@@ -421,23 +747,63 @@ public class Engine {
 		}
 	}
 
+	// only the units whose reload is over are visited
 	private void stepFireUnits() {
+		if (parallel != null) {
+			stepFireUnitsParallel();
+			return;
+		}
+
+		long now = game.getNow();
 		for (Player p : game.getPlayers()) {
-			for (Unit u : p.getUnits()) {
-				if (u instanceof Firing) {
-					Firing f = (Firing) u;
-					f.updateWeapons();
-					if (f.isAbleToFire(game.getNow())) {
-						f.acquireTarget(p.getEnemy());
-						if (f.hasTarget()) {
-							Shot shot = f.fire(game.getNow());
-							shot.init(game.getGridSquareSize());
-							shot.setPlayer(p);
-							game.getShots().add(shot);
-						}
-					}
+			TimingWheel<Firing> schedule = p.getFiringSchedule();
+			int nbReady = schedule.advance(now);
+			for (int i = 0; i < nbReady; i++) {
+				Firing f = schedule.getReady(i);
+				if (!f.isAbleToFire(now)) {
+					// the reload time has changed since it was scheduled
+					schedule.reschedule(i, f.getNextFiringTime());
+					continue;
+				}
+				f.acquireTarget(p.getEnemy());
+				if (f.hasTarget()) {
+					Shot shot = f.fire(now);
+					shot.init(game.getGridSquareSize());
+					shot.setPlayer(p);
+					game.getShots().add(shot);
+					schedule.reschedule(i, f.getNextFiringTime());
 				}
 			}
+			schedule.endVisit();
+		}
+	}
+
+	private void stepFireUnitsParallel() {
+		long now = game.getNow();
+		for (Player p : game.getPlayers()) {
+			TimingWheel<Firing> schedule = p.getFiringSchedule();
+			int nbReady = schedule.advance(now);
+			ensureStepFlags(nbReady);
+
+			fireBody.schedule = schedule;
+			fireBody.player = p;
+			parallel.forEach(nbReady, fireBody);
+			fireBody.schedule = null;
+			fireBody.player = null;
+
+			for (int i = 0; i < nbReady; i++) {
+				Firing f = schedule.getReady(i);
+				if (!stepFlags[i]) {
+					schedule.reschedule(i, f.getNextFiringTime());
+				} else if (f.hasTarget()) {
+					Shot shot = f.fire(now);
+					shot.init(game.getGridSquareSize());
+					shot.setPlayer(p);
+					game.getShots().add(shot);
+					schedule.reschedule(i, f.getNextFiringTime());
+				}
+			}
+			schedule.endVisit();
 		}
 	}
 
@@ -448,8 +814,10 @@ public class Engine {
 	}
 
 	private void stepMoveShots(long delta) {
-		List<Shot> shotsWithTargetReached = new ArrayList<Shot>();
-		for (Shot s : game.getShots()) {
+		List<Shot> shots = game.getShots();
+		shotsWithTargetReached.clear();
+		for (int i = 0; i < shots.size(); i++) {
+			Shot s = shots.get(i);
 			if (s.isTargetReached()) {
 				shotsWithTargetReached.add(s);
 			} else {
@@ -457,74 +825,194 @@ public class Engine {
 			}
 		}
 		for (Shot s : shotsWithTargetReached) {
-			game.getShots().remove(s);
+			shots.remove(s);
+			if (s instanceof TowerShot) {
+				s.getPlayer().getShotPool().release((TowerShot) s);
+			}
 		}
+		shotsWithTargetReached.clear();
 	}
 
 	private void stepMoveUnits(long delta) {
+		if (pathService != null) {
+			deliverPaths();
+		}
+
+		if (planning != null) {
+			stepPlanPaths();
+		}
+
+		if (parallel != null) {
+			stepMoveUnitsParallel(delta);
+			return;
+		}
+
 		for (Player p : game.getPlayers()) {
-			List<Mobile> unitWithTargetReached = new ArrayList<Mobile>();
-			for (Unit u : p.getUnits()) {
-				if (u instanceof Mobile) {
-					Mobile m = (Mobile) u;
-					if (m.getTargetOnBoard() != null) {
-						if (m.getPath() == null) {
-							Path path = game.getBoard().shortestPathOnBoard(m.getPositionOnBoard(), m.getTargetOnBoard());
-							if (path != null) {
-								Path smoothed = game.getBoard().smoothPath(m.getPositionOnBoard(), path, getGridSquareSize(), 3);
-
-								m.setPath(smoothed);
-								m.setUnsmoothedPath(path);
-							} else {
-								System.err.println("WARNING : Unable to find a path for " + m + " ! ");
-							}
-						}
-						m.move(delta);
-						if (m.isTargetReached()) {
-							unitWithTargetReached.add(m);
-						}
+			mobilesWithTargetReached.clear();
+			UnitView<Mobile> mobiles = p.getMobiles();
+			for (int i = 0; i < mobiles.size(); i++) {
+				Mobile m = mobiles.get(i);
+				if (m.getTargetOnBoard() != null) {
+					if ((m.getPath() == null) && (planning == null)) {
+						planPath(p, m);
+					}
+					m.move(delta);
+					if (m instanceof Destructible) {
+						p.getUnitsIndex().update((Destructible) m);
+					}
+					if (m.isTargetReached()) {
+						mobilesWithTargetReached.add(m);
 					}
 				}
 			}
 
-			for (Mobile m : unitWithTargetReached) {
-				if (m instanceof Destructible) {
-					((Destructible) m).setTargetable(false);
+			removeMobilesWithTargetReached(p);
+		}
+	}
+
+	private void stepMoveUnitsParallel(long delta) {
+		for (Player p : game.getPlayers()) {
+			mobilesWithTargetReached.clear();
+			UnitView<Mobile> mobiles = p.getMobiles();
+			ensureStepFlags(mobiles.size());
+
+			// the path finder is not thread safe, paths are planned first
+			for (int i = 0; i < mobiles.size(); i++) {
+				Mobile m = mobiles.get(i);
+				stepFlags[i] = m.getTargetOnBoard() != null;
+				if (stepFlags[i] && (m.getPath() == null) && (planning == null)) {
+					planPath(p, m);
 				}
-				p.removeUnit(m);
-				p.addScore(m.getScoreValue());
-				p.getEnemy().removeScore(m.getScoreValue());
-				p.getStats().incNbUnitsCrossed();
 			}
+
+			moveBody.mobiles = mobiles;
+			moveBody.delta = delta;
+			parallel.forEach(mobiles.size(), moveBody);
+			moveBody.mobiles = null;
+
+			for (int i = 0; i < mobiles.size(); i++) {
+				if (stepFlags[i]) {
+					Mobile m = mobiles.get(i);
+					if (m instanceof Destructible) {
+						p.getUnitsIndex().update((Destructible) m);
+					}
+					if (m.isTargetReached()) {
+						mobilesWithTargetReached.add(m);
+					}
+				}
+			}
+
+			removeMobilesWithTargetReached(p);
 		}
 	}
 
+	// the units left without a path wait for the next ticks
+	private void stepPlanPaths() {
+		PathFinder pathFinder = game.getBoard().getPathFinder();
+		boolean cacheKnown = pathFinder.isSnapshotSearchSupported();
+
+		for (Player p : game.getPlayers()) {
+			UnitView<Mobile> mobiles = p.getMobiles();
+			for (int i = 0; i < mobiles.size(); i++) {
+				Mobile m = mobiles.get(i);
+				if ((m.getTargetOnBoard() != null) && (m.getPath() == null) && !pathRequests.containsKey(m)) {
+					planning.offer(p, m, getNow());
+				}
+			}
+		}
+
+		planning.sort();
+
+		long start = System.nanoTime();
+		int nbSearches = 0;
+		for (int i = 0; (i < planning.size()) && !planning.isSpent(nbSearches, System.nanoTime() - start); i++) {
+			Mobile m = planning.getMobile(i);
+			// the paths already in the cache are not counted
+			boolean cached = false;
+			if (cacheKnown) {
+				Vector s = fromBoardToGrid(m.getPositionOnBoard());
+				Vector e = fromBoardToGrid(m.getTargetOnBoard());
+				cached = (s != null) && (e != null) && pathFinder.isCached(s, e);
+			}
+			planPath(planning.getPlayer(i), m);
+			if (!cached) {
+				nbSearches++;
+			}
+		}
+
+		planning.endTick();
+	}
+
+	// only the units whose tank is built are visited, the ones short of metal
+	// stay ready
 	private void stepSpawnUnits() {
+		long now = game.getNow();
 		for (Player p : game.getPlayers()) {
+			TimingWheel<Spawning> schedule = p.getSpawningSchedule();
+			int nbReady = schedule.advance(now);
 			if (p.isSpawnEnabled()) {
-				Set<Unit> newUnits = new HashSet<Unit>();
-				for (Unit u : p.getUnits()) {
-					if (u instanceof Spawning) {
-						Spawning spu = (Spawning) u;
-						if (spu.isSpawnEnabled() && spu.isAbleToSpawn(game.getNow())) {
-							Mobile s = spu.spawn(game.getNow());
-							s.init(game.getGridSquareSize());
-							if (s != null) {
-
-								List<Vector> potentialTargets = game.getBoard().getEndPositions(p);
-								Vector target = potentialTargets.get(rd.nextInt(potentialTargets.size()));
-								s.setTargetOnBoard(game.getBoard().fromGridToBoard(target));
-
-								newUnits.add(s);
-								p.getStats().incNbUnitsSpawn();
-							}
+				newUnits.clear();
+				for (int i = 0; i < nbReady; i++) {
+					Spawning spu = schedule.getReady(i);
+					if (!spu.isSpawnEnabled()) {
+						continue;
+					}
+					if (!spu.isAbleToSpawn(now)) {
+						if (spu.getNextSpawnTime() > now) {
+							// the build time has changed since it was scheduled
+							schedule.reschedule(i, spu.getNextSpawnTime());
+						}
+						continue;
+					}
+					Mobile s = spu.spawn(now);
+					schedule.reschedule(i, spu.getNextSpawnTime());
+					s.init(game.getGridSquareSize());
+					if (s != null) {
+
+						Board board = game.getBoard();
+						Vector target = null;
+						if (board.isUsingFlowField()) {
+							// where the flow field leads it, known without a new search
+							target = board.getNearestEndPosition(p, s.getPositionOnBoard());
 						}
+						if (target == null) {
+							List<Vector> potentialTargets = board.getEndPositions(p);
+							target = potentialTargets.get(rd.nextInt(potentialTargets.size()));
+						}
+						s.setTargetOnBoard(board.fromGridToBoard(target));
+
+						newUnits.add(s);
+						p.getStats().incNbUnitsSpawn();
 					}
 				}
 				for (Unit u : newUnits) {
 					p.addUnit(u);
 				}
+				newUnits.clear();
 			}
+			schedule.endVisit();
+		}
+	}
+
+	private void tick(long deltaNano) {
+		game.addNow(deltaNano);
+
+		for (Player p : getPlayers()) {
+			p.startNewStep(getNow());
+			p.gatherActions(game.getNow());
+		}
+
+		stepDoPlayerActions();
+		stepManageResources(deltaNano);
+		stepSpawnUnits();
+		stepMoveUnits(deltaNano);
+		stepFireUnits();
+		stepAimUnits();
+		stepMoveShots(deltaNano);
+		stepCheck();
+
+		for (Player p : getPlayers()) {
+			p.endStep(getNow());
 		}
 	}
 
@@ -135,7 +135,7 @@ public class Game {
 		return players;
 	}
 
-	public Collection<Shot> getShots() {
+	public List<Shot> getShots() {
 		return shots;
 	}
 
@@ -30,8 +30,10 @@ import name.herve.bastod.engine.improvements.BuyTowerImprovement;
 import name.herve.bastod.engine.improvements.BuyWallImprovement;
 import name.herve.bastod.engine.improvements.IncreaseSpeedImprovement;
 import name.herve.bastod.engine.improvements.MoreMetalImprovement;
+import name.herve.bastod.engine.pathfinder.PathFinder.Algorithm;
 import name.herve.bastod.engine.players.ComputerPlayer;
 import name.herve.bastod.engine.towerdefense.TowerDefenseGame;
+import name.herve.bastod.engine.units.Blocking;
 import name.herve.bastod.tools.SLTDException;
 import name.herve.bastod.tools.conf.Configuration;
 import name.herve.bastod.tools.math.Vector;
@@ -40,6 +42,30 @@ import name.herve.bastod.tools.math.Vector;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class GameFactory {
+	// the walls and the initial towers are closed now, and the next hop table
+	// compiled from them, so that Engine.start() does not have to
+	private static void closeStaticLayout(Game game) {
+		Board board = game.getBoard();
+
+		for (Unit u : board.getBoardUnits()) {
+			if (u instanceof Blocking) {
+				board.closeOnBoard(u.getPositionOnBoard());
+			}
+		}
+
+		for (Player p : game.getPlayers()) {
+			for (Unit u : p.getUnits()) {
+				if (u instanceof Blocking) {
+					board.closeOnBoard(u.getPositionOnBoard());
+				}
+			}
+		}
+
+		if (board.getPathFinder().getAlgorithm() == Algorithm.NEXT_HOP) {
+			board.getPathFinder().compileNextHops();
+		}
+	}
+
 	private static void initImprovements(Game game) throws SLTDException {
 		game.addAvailableImprovement(new BuyTowerImprovement(game.getConf()));
 		game.addAvailableImprovement(new BuyWallImprovement(game.getConf()));
@@ -93,6 +119,8 @@ public class GameFactory {
 		players[0].setColor(Player.PLAYER_RED);
 		players[1].setColor(Player.PLAYER_BLUE);
 
+		closeStaticLayout(game);
+
 		// players[0].setMetalMultiplier(3f);
 		// System.out.println("TEST - " + players[0] + " has metal bonus " +
 		// players[0].getMetalMultiplier());
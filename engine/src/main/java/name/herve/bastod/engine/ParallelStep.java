@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a loop over the units of a view across a ForkJoinPool. The work done
+ * for each unit must only touch that unit, all the side effects on the game
+ * are applied afterwards by the engine, in the view order.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+class ParallelStep {
+	static abstract class Body {
+		abstract void run(int i);
+	}
+
+	private class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 5837641239520671204L;
+
+		private Body body;
+		private int from;
+		private int to;
+
+		public RangeTask(Body body, int from, int to) {
+			super();
+
+			this.body = body;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if ((to - from) <= grain) {
+				for (int i = from; i < to; i++) {
+					body.run(i);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RangeTask(body, from, middle), new RangeTask(body, middle, to));
+			}
+		}
+	}
+
+	public final static int DEFAULT_GRAIN = 16;
+
+	private int grain;
+	private ForkJoinPool pool;
+
+	public ParallelStep(ForkJoinPool pool) {
+		super();
+
+		this.pool = pool;
+		grain = DEFAULT_GRAIN;
+	}
+
+	public void forEach(int size, Body body) {
+		if (size <= grain) {
+			for (int i = 0; i < size; i++) {
+				body.run(i);
+			}
+		} else {
+			pool.invoke(new RangeTask(body, 0, size));
+		}
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public void setGrain(int grain) {
+		this.grain = Math.max(1, grain);
+	}
+}
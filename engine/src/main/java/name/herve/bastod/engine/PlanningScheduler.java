@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.herve.bastod.engine.units.Mobile;
+import name.herve.bastod.tools.math.Vector;
+
+/**
+ * Orders the units waiting for a path and tells the engine when the planning
+ * budget of the tick is spent. The units which have waited the longest come
+ * first, then the ones closest to the last closed position, which are the
+ * most likely to run into it.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+class PlanningScheduler {
+	private class Request {
+		private float distance;
+		private Mobile mobile;
+		private Player player;
+		private long since;
+	}
+
+	private Comparator<Request> priority;
+	private Vector lastChangeOnBoard;
+	private long maxNanos;
+	private int maxSearches;
+	private List<Request> requests;
+	private List<Request> spareRequests;
+	private Map<Mobile, Long> waitingSince;
+
+	public PlanningScheduler(int maxSearches, long maxNanos) {
+		super();
+
+		this.maxSearches = maxSearches;
+		this.maxNanos = maxNanos;
+
+		requests = new ArrayList<Request>();
+		spareRequests = new ArrayList<Request>();
+		waitingSince = new IdentityHashMap<Mobile, Long>();
+		lastChangeOnBoard = null;
+
+		priority = new Comparator<Request>() {
+			@Override
+			public int compare(Request r1, Request r2) {
+				if (r1.since != r2.since) {
+					return (r1.since < r2.since) ? -1 : 1;
+				}
+				return Float.compare(r1.distance, r2.distance);
+			}
+		};
+	}
+
+	// keeps the waiting time of the units which still have no path
+	public void endTick() {
+		waitingSince.clear();
+
+		for (Request r : requests) {
+			if (r.mobile.getPath() == null) {
+				waitingSince.put(r.mobile, r.since);
+			}
+			r.mobile = null;
+			r.player = null;
+			spareRequests.add(r);
+		}
+		requests.clear();
+	}
+
+	// the unit has left the board, its instance may come back as a new one
+	public void forget(Mobile m) {
+		waitingSince.remove(m);
+	}
+
+	public Mobile getMobile(int i) {
+		return requests.get(i).mobile;
+	}
+
+	public Player getPlayer(int i) {
+		return requests.get(i).player;
+	}
+
+	// at least one search is done in each tick
+	public boolean isSpent(int nbSearches, long elapsedNanos) {
+		if (nbSearches == 0) {
+			return false;
+		}
+		return ((maxSearches > 0) && (nbSearches >= maxSearches)) || ((maxNanos > 0) && (elapsedNanos >= maxNanos));
+	}
+
+	public void offer(Player p, Mobile m, long now) {
+		Request r = spareRequests.isEmpty() ? new Request() : spareRequests.remove(spareRequests.size() - 1);
+		r.player = p;
+		r.mobile = m;
+
+		Long since = waitingSince.get(m);
+		r.since = (since != null) ? since : now;
+
+		Vector from = (lastChangeOnBoard != null) ? lastChangeOnBoard : m.getTargetOnBoard();
+		r.distance = m.getPositionOnBoard().squaredDistance(from);
+
+		requests.add(r);
+	}
+
+	// null when the whole board has changed
+	public void setLastChangeOnBoard(Vector lastChangeOnBoard) {
+		this.lastChangeOnBoard = lastChangeOnBoard;
+	}
+
+	public int size() {
+		return requests.size();
+	}
+
+	// stable : the view order is kept between equal requests
+	public void sort() {
+		Collections.sort(requests, priority);
+	}
+}
@@ -20,13 +20,21 @@ package name.herve.bastod.engine;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import name.herve.bastod.engine.buildings.TowerShot;
 import name.herve.bastod.engine.units.AbstractUnit;
+import name.herve.bastod.engine.units.Destructible;
+import name.herve.bastod.engine.units.Firing;
+import name.herve.bastod.engine.units.Mobile;
+import name.herve.bastod.engine.units.Spawning;
+import name.herve.bastod.engine.units.Tank;
 import name.herve.bastod.tools.Constants;
 import name.herve.bastod.tools.IDGenerator;
+import name.herve.bastod.tools.cache.Pool;
 import name.herve.bastod.tools.math.Vector;
 
 /**
@@ -40,7 +48,10 @@ public abstract class Player implements Comparable<Player> {
 	private List<PlayerAction> actions;
 	private PlayerActionsProvider actionsProvider;
 	private String color;
+	private UnitView<Destructible> destructibles;
 	private Player enemy;
+	private UnitView<Firing> firings;
+	private TimingWheel<Firing> firingSchedule;
 	private int index;
 	private int maxMetal;
 	private int maxScore;
@@ -49,18 +60,29 @@ public abstract class Player implements Comparable<Player> {
 	private int metalAdded;
 	private float metalMultiplier;
 	private int metalRemoved;
+	private UnitView<Mobile> mobiles;
 	private int score;
+	// released by the engine once off the board
+	private Pool<TowerShot> shotPool;
 	private boolean spawnEnabled;
+	private UnitView<Spawning> spawnings;
+	private TimingWheel<Spawning> spawningSchedule;
 	private float speedMultiplier;
 	
 	private Vector startPositionOnBoard;
 
 	private Statistics stats;
+	private Pool<Tank> tankPool;
 	private Set<Unit> units;
+	private SpatialIndex unitsIndex;
 
 	public Player(int index) {
 		super();
 		units = new HashSet<Unit>();
+		mobiles = new UnitView<Mobile>(UnitView.MOBILE);
+		firings = new UnitView<Firing>(UnitView.FIRING);
+		spawnings = new UnitView<Spawning>(UnitView.SPAWNING);
+		destructibles = new UnitView<Destructible>(UnitView.DESTRUCTIBLE);
 		metalAcc = 0;
 		metalMultiplier = 1f;
 		speedMultiplier = 1f;
@@ -70,6 +92,33 @@ public abstract class Player implements Comparable<Player> {
 		
 		actions = Collections.synchronizedList(new ArrayList<PlayerAction>());
 		idGenerator = new IDGenerator();
+
+		// the ready units are visited in the order of their view
+		firingSchedule = new TimingWheel<Firing>(TimingWheel.DEFAULT_SLOT_NANO, TimingWheel.DEFAULT_NB_SLOTS, new Comparator<Firing>() {
+			@Override
+			public int compare(Firing f1, Firing f2) {
+				return f1.getSlot(UnitView.FIRING) - f2.getSlot(UnitView.FIRING);
+			}
+		});
+		spawningSchedule = new TimingWheel<Spawning>(TimingWheel.DEFAULT_SLOT_NANO, TimingWheel.DEFAULT_NB_SLOTS, new Comparator<Spawning>() {
+			@Override
+			public int compare(Spawning s1, Spawning s2) {
+				return s1.getSlot(UnitView.SPAWNING) - s2.getSlot(UnitView.SPAWNING);
+			}
+		});
+
+		tankPool = new Pool<Tank>() {
+			@Override
+			protected Tank create() {
+				return new Tank(0, 0, 0, 0);
+			}
+		};
+		shotPool = new Pool<TowerShot>() {
+			@Override
+			protected TowerShot create() {
+				return new TowerShot(null, new Vector(), null, 0, 0);
+			}
+		};
 	}
 	
 	public void addMetal(int amount) {
@@ -90,7 +139,27 @@ public abstract class Player implements Comparable<Player> {
 	public boolean addUnit(Unit e) {
 		e.setPlayer(this);
 		((AbstractUnit)e).setId(idGenerator.getId());
-		return units.add(e);
+		if (!units.add(e)) {
+			return false;
+		}
+		if (e instanceof Mobile) {
+			mobiles.add((Mobile) e);
+		}
+		if (e instanceof Firing) {
+			firings.add((Firing) e);
+			firingSchedule.schedule((Firing) e, ((Firing) e).getNextFiringTime());
+		}
+		if (e instanceof Spawning) {
+			spawnings.add((Spawning) e);
+			spawningSchedule.schedule((Spawning) e, ((Spawning) e).getNextSpawnTime());
+		}
+		if (e instanceof Destructible) {
+			destructibles.add((Destructible) e);
+			if (unitsIndex != null) {
+				unitsIndex.add((Destructible) e);
+			}
+		}
+		return true;
 	}
 
 	public void clearActions() {
@@ -131,6 +200,10 @@ public abstract class Player implements Comparable<Player> {
 		return color;
 	}
 
+	public UnitView<Destructible> getDestructibles() {
+		return destructibles;
+	}
+
 	public Player getEnemy() {
 		return enemy;
 	}
@@ -139,6 +212,14 @@ public abstract class Player implements Comparable<Player> {
 		return getEnemy().getStartPositionOnBoard();
 	}
 
+	public UnitView<Firing> getFirings() {
+		return firings;
+	}
+
+	TimingWheel<Firing> getFiringSchedule() {
+		return firingSchedule;
+	}
+
 	public int getIndex() {
 		return index;
 	}
@@ -167,10 +248,26 @@ public abstract class Player implements Comparable<Player> {
 		return stats.getMetalRemovedMean(now);
 	}
 
+	public UnitView<Mobile> getMobiles() {
+		return mobiles;
+	}
+
 	public int getScore() {
 		return score;
 	}
 
+	public Pool<TowerShot> getShotPool() {
+		return shotPool;
+	}
+
+	TimingWheel<Spawning> getSpawningSchedule() {
+		return spawningSchedule;
+	}
+
+	public UnitView<Spawning> getSpawnings() {
+		return spawnings;
+	}
+
 	public float getSpeedMultiplier() {
 		return speedMultiplier;
 	}
@@ -183,10 +280,18 @@ public abstract class Player implements Comparable<Player> {
 		return stats;
 	}
 
+	public Pool<Tank> getTankPool() {
+		return tankPool;
+	}
+
 	public Set<Unit> getUnits() {
 		return units;
 	}
 
+	public SpatialIndex getUnitsIndex() {
+		return unitsIndex;
+	}
+
 	public boolean isSpawnEnabled() {
 		return spawnEnabled;
 	}
@@ -205,7 +310,27 @@ public abstract class Player implements Comparable<Player> {
 	}
 
 	public boolean removeUnit(Unit o) {
-		return units.remove(o);
+		if (!units.remove(o)) {
+			return false;
+		}
+		if (o instanceof Mobile) {
+			mobiles.remove((Mobile) o);
+		}
+		if (o instanceof Firing) {
+			firings.remove((Firing) o);
+			firingSchedule.remove((Firing) o);
+		}
+		if (o instanceof Spawning) {
+			spawnings.remove((Spawning) o);
+			spawningSchedule.remove((Spawning) o);
+		}
+		if (o instanceof Destructible) {
+			destructibles.remove((Destructible) o);
+			if (unitsIndex != null) {
+				unitsIndex.remove((Destructible) o);
+			}
+		}
+		return true;
 	}
 
 	public void setActionsProvider(PlayerActionsProvider actionsProvider) {
@@ -253,6 +378,14 @@ public abstract class Player implements Comparable<Player> {
 		this.startPositionOnBoard = startPositionOnBoard;
 	}
 
+	public void setUnitsIndex(SpatialIndex unitsIndex) {
+		this.unitsIndex = unitsIndex;
+		unitsIndex.clear();
+		for (int i = 0; i < destructibles.size(); i++) {
+			unitsIndex.add(destructibles.get(i));
+		}
+	}
+
 	public void startNewStep(long now) {
 		metalAdded = 0;
 		metalRemoved = 0;
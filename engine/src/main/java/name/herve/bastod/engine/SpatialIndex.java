@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.herve.bastod.engine.units.Destructible;
+import name.herve.bastod.tools.math.Dimension;
+import name.herve.bastod.tools.math.Vector;
+
+/**
+ * Uniform grid of the destructible units of a player, bucketed by board
+ * square, used to find the units in range without scanning them all.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class SpatialIndex {
+	private List<List<Destructible>> buckets;
+	// the bucket is kept in a mutable holder, moving a unit allocates nothing
+	private Map<Destructible, int[]> bucketOf;
+	private int w;
+	private int h;
+	private int squareSize;
+
+	public SpatialIndex(Dimension gridDimension, int squareSize) {
+		super();
+
+		this.squareSize = squareSize;
+		w = gridDimension.getW();
+		h = gridDimension.getH();
+
+		buckets = new ArrayList<List<Destructible>>(w * h);
+		for (int i = 0; i < w * h; i++) {
+			buckets.add(new ArrayList<Destructible>());
+		}
+		bucketOf = new HashMap<Destructible, int[]>();
+	}
+
+	public void add(Destructible u) {
+		int b = getBucket(u.getPositionOnBoard());
+		buckets.get(b).add(u);
+		bucketOf.put(u, new int[] { b });
+	}
+
+	public void clear() {
+		for (List<Destructible> bucket : buckets) {
+			bucket.clear();
+		}
+		bucketOf.clear();
+	}
+
+	public void findInRange(Vector center, float rangeOnBoard, List<Destructible> result) {
+		int x0 = clampX((int) Math.floor((center.getX() - rangeOnBoard) / squareSize));
+		int x1 = clampX((int) Math.floor((center.getX() + rangeOnBoard) / squareSize));
+		int y0 = clampY((int) Math.floor((center.getY() - rangeOnBoard) / squareSize));
+		int y1 = clampY((int) Math.floor((center.getY() + rangeOnBoard) / squareSize));
+		float squaredRange = rangeOnBoard * rangeOnBoard;
+
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				for (Destructible u : buckets.get(x * h + y)) {
+					if (center.squaredDistance(u.getPositionOnBoard()) <= squaredRange) {
+						result.add(u);
+					}
+				}
+			}
+		}
+	}
+
+	private int clampX(int x) {
+		return Math.max(0, Math.min(w - 1, x));
+	}
+
+	private int clampY(int y) {
+		return Math.max(0, Math.min(h - 1, y));
+	}
+
+	private int getBucket(Vector positionOnBoard) {
+		int x = clampX((int) Math.floor(positionOnBoard.getX() / squareSize));
+		int y = clampY((int) Math.floor(positionOnBoard.getY() / squareSize));
+		return x * h + y;
+	}
+
+	public void remove(Destructible u) {
+		int[] b = bucketOf.remove(u);
+		if (b != null) {
+			buckets.get(b[0]).remove(u);
+		}
+	}
+
+	public int size() {
+		return bucketOf.size();
+	}
+
+	public void update(Destructible u) {
+		int[] b = bucketOf.get(u);
+		if (b == null) {
+			return;
+		}
+		int nb = getBucket(u.getPositionOnBoard());
+		if (nb != b[0]) {
+			buckets.get(b[0]).remove(u);
+			buckets.get(nb).add(u);
+			b[0] = nb;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import name.herve.bastod.tools.Constants;
+
+// See http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf
+
+/**
+ * Hashed timing wheel holding the units until the time they are ready again
+ * (reloaded, tank built). Each slot covers a fixed duration and the slots are
+ * reused at each rotation : an entry is only taken out when its own deadline
+ * has passed. The units taken out stay ready, and are visited at each tick,
+ * until they are scheduled again.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+class TimingWheel<T> {
+	private class Entry {
+		private long deadline;
+		private boolean rescheduled;
+		private T unit;
+	}
+
+	public final static long DEFAULT_SLOT_NANO = 20 * Constants.NANO_MILLI;
+	public final static int DEFAULT_NB_SLOTS = 256;
+
+	private long currentTick;
+	private int mask;
+	private Comparator<Entry> order;
+	private List<Entry> ready;
+	private List<List<Entry>> slots;
+	private long slotNano;
+	private List<Entry> spareEntries;
+
+	// the ready units are visited in the order given by the comparator
+	public TimingWheel(long slotNano, int nbSlots, final Comparator<T> comparator) {
+		super();
+
+		this.slotNano = slotNano;
+
+		int length = Integer.highestOneBit(Math.max(1, nbSlots) * 2 - 1);
+		mask = length - 1;
+		slots = new ArrayList<List<Entry>>(length);
+		for (int i = 0; i < length; i++) {
+			slots.add(new ArrayList<Entry>());
+		}
+		ready = new ArrayList<Entry>();
+		spareEntries = new ArrayList<Entry>();
+		currentTick = 0;
+
+		order = new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return comparator.compare(e1.unit, e2.unit);
+			}
+		};
+	}
+
+	// returns the number of units ready at now
+	public int advance(long now) {
+		long nowTick = now / slotNano;
+
+		// the current slot is visited again, it may hold later deadlines
+		long nbTicks = Math.min(nowTick - currentTick + 1, slots.size());
+		for (long t = 0; t < nbTicks; t++) {
+			List<Entry> slot = slots.get((int) ((currentTick + t) & mask));
+			int kept = 0;
+			for (int i = 0; i < slot.size(); i++) {
+				Entry e = slot.get(i);
+				if (e.deadline <= now) {
+					ready.add(e);
+				} else {
+					slot.set(kept++, e);
+				}
+			}
+			while (slot.size() > kept) {
+				slot.remove(slot.size() - 1);
+			}
+		}
+		currentTick = Math.max(currentTick, nowTick);
+
+		Collections.sort(ready, order);
+
+		return ready.size();
+	}
+
+	// the units scheduled during a visit are moved at its end
+	public void endVisit() {
+		int kept = 0;
+		for (int i = 0; i < ready.size(); i++) {
+			Entry e = ready.get(i);
+			if (e.rescheduled) {
+				e.rescheduled = false;
+				insert(e);
+			} else {
+				ready.set(kept++, e);
+			}
+		}
+		while (ready.size() > kept) {
+			ready.remove(ready.size() - 1);
+		}
+	}
+
+	public T getReady(int i) {
+		return ready.get(i).unit;
+	}
+
+	private void insert(Entry e) {
+		long tick = Math.max(e.deadline / slotNano, currentTick);
+		slots.get((int) (tick & mask)).add(e);
+	}
+
+	public boolean remove(T unit) {
+		if (remove(ready, unit)) {
+			return true;
+		}
+		for (List<Entry> slot : slots) {
+			if (remove(slot, unit)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean remove(List<Entry> entries, T unit) {
+		for (int i = 0; i < entries.size(); i++) {
+			Entry e = entries.get(i);
+			if (e.unit == unit) {
+				entries.remove(i);
+				e.unit = null;
+				spareEntries.add(e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the i-th ready unit, during a visit
+	public void reschedule(int i, long deadline) {
+		Entry e = ready.get(i);
+		e.deadline = deadline;
+		e.rescheduled = true;
+	}
+
+	public void schedule(T unit, long deadline) {
+		Entry e = spareEntries.isEmpty() ? new Entry() : spareEntries.remove(spareEntries.size() - 1);
+		e.unit = unit;
+		e.deadline = deadline;
+		e.rescheduled = false;
+		insert(e);
+	}
+}
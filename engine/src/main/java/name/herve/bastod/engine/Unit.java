@@ -27,4 +27,7 @@ public interface Unit extends OnBoard {
 	String getName();
 	int getId();
 	List<String> getInfos();
+	// slot in the UnitView of the given kind, -1 when not in this view
+	int getSlot(int view);
+	void setSlot(int view, int slot);
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.Arrays;
+
+/**
+ * Dense array of the units of a player having a given role (mobile, firing,
+ * ...), so that each step of the engine only goes through the units it cares
+ * about, without instanceof tests. Each unit remembers its slot in the views
+ * it belongs to, so that removing it is done in constant time by moving the
+ * last unit in its slot.<br/>
+ * Only the references are contiguous : the state of the units (positions,
+ * speeds, armor, paths) stays in the unit objects, wherever they are on the
+ * heap. This is not a structure of arrays.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class UnitView<T extends Unit> {
+	public final static int MOBILE = 0;
+	public final static int FIRING = 1;
+	public final static int SPAWNING = 2;
+	public final static int DESTRUCTIBLE = 3;
+	public final static int NB_VIEWS = 4;
+
+	private int kind;
+	private int size;
+	private Object[] units;
+
+	public UnitView(int kind) {
+		super();
+
+		this.kind = kind;
+		units = new Object[16];
+		size = 0;
+	}
+
+	public void add(T u) {
+		if (size == units.length) {
+			units = Arrays.copyOf(units, 2 * size);
+		}
+		units[size] = u;
+		u.setSlot(kind, size);
+		size++;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int i) {
+		return (T) units[i];
+	}
+
+	public boolean remove(T u) {
+		int slot = u.getSlot(kind);
+		if ((slot < 0) || (slot >= size) || (units[slot] != u)) {
+			return false;
+		}
+
+		size--;
+		if (slot != size) {
+			units[slot] = units[size];
+			((Unit) units[slot]).setSlot(kind, slot);
+		}
+		units[size] = null;
+		u.setSlot(kind, -1);
+
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+}
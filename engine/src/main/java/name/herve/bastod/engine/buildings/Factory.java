@@ -42,6 +42,11 @@ public class Factory extends AbstractUnit implements Spawning, Blocking {
 		super();
 	}
 
+	@Override
+	public long getNextSpawnTime() {
+		return lastSpawnTime + tankBuildTimeNano;
+	}
+
 	public int getTankMetalCost() {
 		return tankMetalCost;
 	}
@@ -90,8 +95,13 @@ public class Factory extends AbstractUnit implements Spawning, Blocking {
 		lastSpawnTime = now;
 		getPlayer().removeMetal(tankMetalCost);
 		
-		Tank tank = new Tank(tankMaxArmor, tankSpeedOnGrid * getPlayer().getSpeedMultiplier(), tankAccelerationOnGrid, tankScoreValue);
-		tank.setPositionOnBoard(getPositionOnBoard().copy());
+		Tank tank = getPlayer().getTankPool().acquire();
+		tank.reset(tankMaxArmor, tankSpeedOnGrid * getPlayer().getSpeedMultiplier(), tankAccelerationOnGrid, tankScoreValue);
+		if (tank.getPositionOnBoard() == null) {
+			tank.setPositionOnBoard(getPositionOnBoard().copy());
+		} else {
+			tank.getPositionOnBoard().set(getPositionOnBoard());
+		}
 
 		return tank;
 	}
@@ -23,19 +23,22 @@ import java.util.List;
 
 import name.herve.bastod.engine.Player;
 import name.herve.bastod.engine.Shot;
-import name.herve.bastod.engine.Unit;
 import name.herve.bastod.engine.units.AbstractUnit;
 import name.herve.bastod.engine.units.Blocking;
 import name.herve.bastod.engine.units.Destructible;
 import name.herve.bastod.engine.units.Firing;
 import name.herve.bastod.tools.Constants;
+import name.herve.bastod.tools.math.Vector;
 
 /**
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class Tower extends AbstractUnit implements Firing, Blocking {
 	private float angle;
+	private List<Destructible> candidates;
 	private Destructible currentTarget;
+	// a pooled tank gets a new id when it is spawned again
+	private int currentTargetId;
 	private int damageDealt;
 	private long lastFiringTime;
 	private float rangeOnBoard;
@@ -50,25 +53,30 @@ public class Tower extends AbstractUnit implements Firing, Blocking {
 		super();
 
 		this.rangeOnGrid = rangeOnGrid;
+		candidates = new ArrayList<Destructible>();
 		statsDamageDone = 0;
 		statsEnemyKilled = 0;
 	}
 
 	@Override
 	public void acquireTarget(Player enemy) {
-		if ((currentTarget == null) || (!currentTarget.isAlive()) || (!currentTarget.isTargetable()) || (!isInRange(currentTarget))) {
+		if ((currentTarget == null) || (currentTarget.getId() != currentTargetId) || (!currentTarget.isAlive()) || (!currentTarget.isTargetable()) || (!isInRange(currentTarget))) {
 			currentTarget = null;
 			float sqDist;
 			float currentSqDist = Float.MAX_VALUE;
-			for (Unit u : enemy.getUnits()) {
-				if (u instanceof Destructible) {
-					sqDist = getPositionOnBoard().squaredDistance(u.getPositionOnBoard());
-					if ((sqDist <= currentSqDist) && (sqDist <= squaredRangeOnBoard)) {
-						currentSqDist = sqDist;
-						currentTarget = (Destructible) u;
-					}
+			candidates.clear();
+			enemy.getUnitsIndex().findInRange(getPositionOnBoard(), rangeOnBoard, candidates);
+			for (Destructible u : candidates) {
+				sqDist = getPositionOnBoard().squaredDistance(u.getPositionOnBoard());
+				if ((sqDist < currentSqDist) || ((sqDist == currentSqDist) && (u.getId() < currentTarget.getId()))) {
+					currentSqDist = sqDist;
+					currentTarget = u;
 				}
 			}
+			candidates.clear();
+			if (currentTarget != null) {
+				currentTargetId = currentTarget.getId();
+			}
 		}
 	}
 
@@ -85,7 +93,9 @@ public class Tower extends AbstractUnit implements Firing, Blocking {
 	@Override
 	public Shot fire(long now) {
 		lastFiringTime = now;
-		return new TowerShot(this, getPositionOnBoard().copy(), currentTarget, shotSpeedOnGrid, damageDealt);
+		TowerShot shot = getPlayer().getShotPool().acquire();
+		shot.reset(this, getPositionOnBoard(), currentTarget, shotSpeedOnGrid, damageDealt);
+		return shot;
 	}
 
 	@Override
@@ -104,6 +114,11 @@ public class Tower extends AbstractUnit implements Firing, Blocking {
 		return infos;
 	}
 
+	@Override
+	public long getNextFiringTime() {
+		return lastFiringTime + reloadTimeNano;
+	}
+
 	public float getRangeOnBoard() {
 		return rangeOnBoard;
 	}
@@ -157,8 +172,9 @@ public class Tower extends AbstractUnit implements Firing, Blocking {
 
 	@Override
 	public void updateWeapons() {
-		if (currentTarget != null) {
-			angle = currentTarget.getPositionOnBoard().copy().remove(getPositionOnBoard()).angleDeg();
+		if ((currentTarget != null) && (currentTarget.getId() == currentTargetId)) {
+			Vector t = currentTarget.getPositionOnBoard();
+			angle = Vector.angleDeg(t.getX() - getPositionOnBoard().getX(), t.getY() - getPositionOnBoard().getY());
 		}
 	}
 
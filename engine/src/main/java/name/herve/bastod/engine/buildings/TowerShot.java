@@ -35,16 +35,15 @@ public class TowerShot implements Shot {
 	private float speedOnBoard;
 	private float speedOnGrid;
 	private Destructible target;
+	// a pooled tank gets a new id when it is spawned again
+	private int targetId;
 	private Firing parent;
 
 	public TowerShot(Firing parent, Vector positionOnBoard, Destructible target, float speedOnGrid, int damageDealt) {
 		super();
 
 		this.positionOnBoard = positionOnBoard;
-		this.speedOnGrid = speedOnGrid;
-		this.damageDealt = damageDealt;
-		this.target = target;
-		this.parent = parent;
+		reset(parent, positionOnBoard, target, speedOnGrid, damageDealt);
 	}
 
 	@Override
@@ -74,13 +73,14 @@ public class TowerShot implements Shot {
 
 	@Override
 	public void move(long delta) {
-		if (!target.isAlive()) {
+		if (!target.isAlive() || (target.getId() != targetId)) {
 			target = null;
 			return;
 		}
 		
-		Vector direction = target.getPositionOnBoard().copy().remove(positionOnBoard);
-		float distanceLeft = direction.length();
+		float dx = target.getPositionOnBoard().getX() - positionOnBoard.getX();
+		float dy = target.getPositionOnBoard().getY() - positionOnBoard.getY();
+		float distanceLeft = Vector.length(dx, dy);
 		float moveCapacity = speedOnBoard * delta / Constants.NANO;
 		if (distanceLeft <= moveCapacity) {
 			target.removeArmor(damageDealt);
@@ -92,8 +92,18 @@ public class TowerShot implements Shot {
 			return;
 		}
 
-		direction.multiply(moveCapacity / distanceLeft);
-		positionOnBoard.add(direction);
+		float f = moveCapacity / distanceLeft;
+		positionOnBoard.add(dx * f, dy * f);
+	}
+
+	// back to a new shot, reused from the pool of its player
+	public void reset(Firing parent, Vector from, Destructible target, float speedOnGrid, int damageDealt) {
+		positionOnBoard.set(from);
+		this.speedOnGrid = speedOnGrid;
+		this.damageDealt = damageDealt;
+		this.target = target;
+		this.targetId = (target != null) ? target.getId() : -1;
+		this.parent = parent;
 	}
 
 	@Override
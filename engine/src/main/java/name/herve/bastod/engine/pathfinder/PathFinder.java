@@ -18,20 +18,32 @@
  */
 package name.herve.bastod.engine.pathfinder;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import name.herve.bastod.engine.Board;
+import name.herve.bastod.tools.cache.ClockCache;
 import name.herve.bastod.tools.graph.AStar;
 import name.herve.bastod.tools.graph.AStar2;
 import name.herve.bastod.tools.graph.AStar3;
 import name.herve.bastod.tools.graph.Dijkstra;
+import name.herve.bastod.tools.graph.FlowField;
 import name.herve.bastod.tools.graph.Graph;
+import name.herve.bastod.tools.graph.HPAStar;
+import name.herve.bastod.tools.graph.JumpPointSearch;
+import name.herve.bastod.tools.graph.Landmarks;
+import name.herve.bastod.tools.graph.LazyThetaStar;
+import name.herve.bastod.tools.graph.NextHopTable;
 import name.herve.bastod.tools.graph.NoGraph;
+import name.herve.bastod.tools.graph.NoGraphPathFinderAlgorithm;
 import name.herve.bastod.tools.graph.Node;
 import name.herve.bastod.tools.graph.Path;
 import name.herve.bastod.tools.graph.PathFinderAlgorithm;
+import name.herve.bastod.tools.graph.Separators;
 import name.herve.bastod.tools.graph.ThetaStar;
 import name.herve.bastod.tools.math.Dimension;
 import name.herve.bastod.tools.math.Vector;
@@ -43,20 +55,56 @@ import name.herve.bastod.tools.math.Vector;
  */
 public class PathFinder {
 	public enum Algorithm {
-		ASTAR, ASTAR2, ASTAR3, DIJKSTRA, THETASTAR
+		ASTAR, ASTAR2, ASTAR3, DIJKSTRA, THETASTAR, JPS, HPASTAR, FLOW_FIELD, NEXT_HOP, LAZY_THETASTAR
 	};
 
+	// the footprint is null when there is no path. The same path on the
+	// board, and its last smoothing, are computed when first asked for
+	private static class CachedPath {
+		private BitSet footprint;
+		private Path onBoard;
+		private Path path;
+		private Path smoothed;
+		private int smoothedNbStep;
+		private float smoothedR;
+		private float smoothedX;
+		private float smoothedY;
+
+		public CachedPath(Path path, BitSet footprint) {
+			super();
+			this.path = (path != null) ? path.seal() : null;
+			this.footprint = footprint;
+			onBoard = null;
+			smoothed = null;
+		}
+	}
+
+	public final static int DEFAULT_PATH_CACHE_CAPACITY = 4096;
+	public final static int DEFAULT_DIJKSTRA_CACHE_CAPACITY = 64;
+	public final static int DEFAULT_TARGET_FIELD_CACHE_CAPACITY = 16;
+
 	private Algorithm algo;
 	private PathFinderAlgorithm astar;
-	private Map<Long, Path> astarCache;
-	private Map<Long, Dijkstra> dijkstraCache;
+	private ClockCache<CachedPath> astarCache;
+	private ClockCache<Dijkstra> dijkstraCache;
+	// keyed by the goal nodes, in the order of the targets
+	private Map<String, FlowField> flowFieldCache;
 
 	private Graph graph;
 	private Node[][] grid;
+	private Landmarks landmarks;
 
 	private Dimension gridDimension;
 	private NoGraph nograph;
+	private NoGraph snapshot;
+	private Separators separators;
 	private int squareSize;
+	// reverse search : one field per target, shared by all the start
+	// positions
+	private ClockCache<FlowField> targetFieldCache;
+	private NextHopTable nextHops;
+	private long nbNextHopWalks;
+	private long nbLiveSearches;
 
 	public PathFinder(Algorithm algo, Dimension gridDimension, boolean allowDiagonal) {
 		super();
@@ -64,20 +112,30 @@ public class PathFinder {
 		this.algo = algo;
 
 		this.gridDimension = gridDimension;
+		snapshot = null;
 
 		switch (algo) {
 		case DIJKSTRA:
-			dijkstraCache = new HashMap<Long, Dijkstra>();
+			dijkstraCache = new ClockCache<Dijkstra>(DEFAULT_DIJKSTRA_CACHE_CAPACITY);
 			initGraph(gridDimension, allowDiagonal);
 			break;
 		case ASTAR:
 		case ASTAR2:
-			astarCache = new HashMap<Long, Path>();
+			astarCache = new ClockCache<CachedPath>(DEFAULT_PATH_CACHE_CAPACITY);
 			initGraph(gridDimension, allowDiagonal);
 			break;
 		case ASTAR3:
 		case THETASTAR:
-			astarCache = new HashMap<Long, Path>();
+		case LAZY_THETASTAR:
+		case JPS:
+		case HPASTAR:
+		case NEXT_HOP:
+			astarCache = new ClockCache<CachedPath>(DEFAULT_PATH_CACHE_CAPACITY);
+			initGraph2(gridDimension, allowDiagonal);
+			break;
+		case FLOW_FIELD:
+			astarCache = new ClockCache<CachedPath>(DEFAULT_PATH_CACHE_CAPACITY);
+			flowFieldCache = new HashMap<String, FlowField>();
 			initGraph2(gridDimension, allowDiagonal);
 			break;
 		}
@@ -124,6 +182,11 @@ public class PathFinder {
 			break;
 		case ASTAR3:
 		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case HPASTAR:
+		case FLOW_FIELD:
+		case NEXT_HOP:
 			checkPositionBoard = checkPositionBoardCenter.copy().add(squareSize, 0);
 			checkPositionGrid = Board.b2g(checkPositionBoard, gridDimension, squareSize);
 			iNodeToCheck = nograph.getNode(checkPositionGrid);
@@ -157,28 +220,147 @@ public class PathFinder {
 		return true;
 	}
 
+	private void applyLandmarks() {
+		if (astar instanceof NoGraphPathFinderAlgorithm) {
+			((NoGraphPathFinderAlgorithm) astar).setLandmarks(landmarks);
+		}
+	}
+
 	public void clearCache() {
 		switch (algo) {
 		case DIJKSTRA:
 			dijkstraCache.clear();
 			break;
 		case ASTAR:
-			astar = new AStar(graph);
+			// kept, they read the availability of the nodes from the compiled
+			// graph
+			if (astar == null) {
+				astar = new AStar(graph);
+			}
 			astarCache.clear();
 			break;
 		case ASTAR2:
-			astar = new AStar2(graph);
+			if (astar == null) {
+				astar = new AStar2(graph);
+			}
 			astarCache.clear();
 			break;
 		case ASTAR3:
-			astar = new AStar3(nograph);
+		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+			astar = createAlgorithm(algo, nograph);
 			astarCache.clear();
 			break;
-		case THETASTAR:
+		case HPASTAR:
+			// kept, only the clusters changed since are rebuilt
+			if (astar == null) {
+				astar = createAlgorithm(algo, nograph);
+			}
+			astarCache.clear();
+			break;
+		case FLOW_FIELD:
 			astar = new ThetaStar(nograph);
 			astarCache.clear();
+			flowFieldCache.clear();
+			break;
+		case NEXT_HOP:
+			// the table is compiled once, see compileNextHops()
+			astar = createAlgorithm(algo, nograph);
+			astarCache.clear();
 			break;
 		}
+
+		if (targetFieldCache != null) {
+			targetFieldCache.clear();
+			flowFieldCache.clear();
+		}
+
+		if (landmarks != null) {
+			landmarks.update(getSnapshot());
+			applyLandmarks();
+		}
+	}
+
+	// Only drops the cached paths going through p (which has just been
+	// closed)
+	public void clearCache(Vector p) {
+		switch (algo) {
+		case DIJKSTRA:
+		case ASTAR:
+		case ASTAR2:
+			clearCache();
+			break;
+		case ASTAR3:
+		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case HPASTAR:
+		case FLOW_FIELD:
+		case NEXT_HOP:
+			int n = nograph.getNode(p);
+
+			// the previous distances are still a lower bound
+			if ((landmarks != null) && landmarks.isBackground()) {
+				landmarks.update(getSnapshot());
+			}
+
+			int slot = 0;
+			while (slot < astarCache.getTableLength()) {
+				if (astarCache.isUsedAt(slot)) {
+					BitSet footprint = astarCache.getValueAt(slot).footprint;
+					if ((footprint != null) && footprint.get(n)) {
+						// another entry may have been shifted back to this slot
+						astarCache.removeAt(slot);
+						continue;
+					}
+				}
+				slot++;
+			}
+
+			if (flowFieldCache != null) {
+				Iterator<FlowField> itf = flowFieldCache.values().iterator();
+				while (itf.hasNext()) {
+					if (!itf.next().isValidWithout(n)) {
+						itf.remove();
+					}
+				}
+			}
+
+			if (targetFieldCache != null) {
+				slot = 0;
+				while (slot < targetFieldCache.getTableLength()) {
+					if (targetFieldCache.isUsedAt(slot) && !targetFieldCache.getValueAt(slot).isValidWithout(n)) {
+						targetFieldCache.removeAt(slot);
+						continue;
+					}
+					slot++;
+				}
+			}
+			break;
+		}
+	}
+
+	// Only NextHop : compiled from the current layout, which should be the
+	// static one, later changes fall back to live searches around them.
+	// Nothing is compiled above NextHopTable.MAX_NODES nodes, all the paths
+	// are then live searches
+	public void compileNextHops() {
+		if (nograph.size() > NextHopTable.MAX_NODES) {
+			return;
+		}
+
+		nextHops = new NextHopTable(nograph);
+		nbNextHopWalks = 0;
+		nbLiveSearches = 0;
+	}
+
+	private long cacheKey(int sn, int en) {
+		return (long) sn * (long) nograph.size() + (long) en;
+	}
+
+	private long cacheKey(Vector s, Vector e) {
+		return cacheKey(nograph.getNode(s), nograph.getNode(e));
 	}
 
 	public void close(Vector p) {
@@ -190,15 +372,155 @@ public class PathFinder {
 			n.setAvailable(false);
 			break;
 		case ASTAR3:
+		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case FLOW_FIELD:
+		case NEXT_HOP:
+			// NextHop : the walks check the nodes they go through
 			nograph.close(p.getXInt(), p.getYInt());
 			break;
-		case THETASTAR:
+		case HPASTAR:
 			nograph.close(p.getXInt(), p.getYInt());
-			nograph.resetLoS();
+			if (astar != null) {
+				((HPAStar) astar).markChanged(nograph.getNode(p));
+			}
 			break;
 		}
 	}
 
+	private BitSet footprint(int sn, Path path) {
+		BitSet nodes = new BitSet(nograph.size());
+		int previous = sn;
+		nodes.set(sn);
+		for (Vector v : path) {
+			int current = nograph.getNode(v);
+			nograph.markLine(previous, current, nodes);
+			previous = current;
+		}
+		return nodes;
+	}
+
+	// Only AStar3, ThetaStar, JPS and HPAStar : a new search state over the
+	// given graph
+	public static NoGraphPathFinderAlgorithm createAlgorithm(Algorithm algo, NoGraph graph) {
+		switch (algo) {
+		case ASTAR3:
+			return new AStar3(graph);
+		case THETASTAR:
+		case NEXT_HOP:
+			return new ThetaStar(graph);
+		case LAZY_THETASTAR:
+			return new LazyThetaStar(graph);
+		case JPS:
+			return new JumpPointSearch(graph);
+		case HPASTAR:
+			return new HPAStar(graph);
+		default:
+			throw new RuntimeException("Not implemented");
+		}
+	}
+
+	public Algorithm getAlgorithm() {
+		return algo;
+	}
+
+	private ClockCache<?> getCache() {
+		return (dijkstraCache != null) ? dijkstraCache : astarCache;
+	}
+
+	public int getCacheCapacity() {
+		return getCache().getCapacity();
+	}
+
+	public long getCacheEvictions() {
+		return getCache().getEvictions();
+	}
+
+	public long getCacheHits() {
+		return getCache().getHits();
+	}
+
+	public long getCacheMisses() {
+		return getCache().getMisses();
+	}
+
+	public int getCacheSize() {
+		return getCache().size();
+	}
+
+	private FlowField getFlowField(List<Vector> targets) {
+		int[] goals = new int[targets.size()];
+		for (int i = 0; i < goals.length; i++) {
+			goals[i] = nograph.getNode(targets.get(i));
+		}
+
+		String key = Arrays.toString(goals);
+		FlowField field = flowFieldCache.get(key);
+		if (field == null) {
+			field = new FlowField(nograph);
+			field.compute(goals);
+			flowFieldCache.put(key, field);
+		}
+		return field;
+	}
+
+	public int getGraphVersion() {
+		return nograph.getVersion();
+	}
+
+	// null when not used
+	public Landmarks getLandmarks() {
+		return landmarks;
+	}
+
+	// Only FlowField, or with the reverse search : null if none of the targets
+	// can be reached from s
+	public Vector getNearestTarget(Vector s, List<Vector> targets) {
+		if (flowFieldCache == null) {
+			throw new RuntimeException("Not implemented");
+		}
+
+		int sn = nograph.getNode(s);
+		if (sn < 0) {
+			return null;
+		}
+		int goal = getFlowField(targets).getGoal(sn);
+		return (goal >= 0) ? targets.get(goal) : null;
+	}
+
+	// Only AStar3 and ThetaStar : nodes expanded since the last full cache
+	// clearing
+	public long getNbExpanded() {
+		if (astar instanceof NoGraphPathFinderAlgorithm) {
+			return ((NoGraphPathFinderAlgorithm) astar).getNbExpanded();
+		}
+		return 0;
+	}
+
+	// lineOfSight calls on the board, by the searches as well as by the
+	// smoothing, and the ones which were not in the line of sight cache. The
+	// searches made on the snapshots by the path workers are not counted
+	public long getNbLoSChecks() {
+		return (nograph != null) ? nograph.getNbLoSChecks() : 0;
+	}
+
+	public long getNbLoSComputed() {
+		return (nograph != null) ? nograph.getNbLoSComputed() : 0;
+	}
+
+	public long getNbLiveSearches() {
+		return nbLiveSearches;
+	}
+
+	public long getNbNextHopWalks() {
+		return nbNextHopWalks;
+	}
+
+	public NextHopTable getNextHops() {
+		return nextHops;
+	}
+
 	public Node getNode(Vector p) {
 		if (p == null) {
 			return null;
@@ -206,6 +528,24 @@ public class PathFinder {
 		return grid[p.getXInt()][p.getYInt()];
 	}
 
+	// Only AStar3, ThetaStar, JPS and HPAStar : kept until the graph changes
+	public NoGraph getSnapshot() {
+		if ((snapshot == null) || (snapshot.getVersion() != nograph.getVersion())) {
+			snapshot = nograph.snapshot();
+		}
+		return snapshot;
+	}
+
+	private FlowField getTargetField(int en) {
+		FlowField field = targetFieldCache.get(en);
+		if (field == null) {
+			field = new FlowField(nograph);
+			field.compute(new int[] { en });
+			targetFieldCache.put(en, field);
+		}
+		return field;
+	}
+
 	private void initGraph(Dimension gridDimension, boolean allowDiagonal) {
 		nograph = null;
 		graph = new Graph();
@@ -263,6 +603,21 @@ public class PathFinder {
 		nograph = new NoGraph(gridDimension.getW(), gridDimension.getH(), allowDiagonal);
 	}
 
+	// Only AStar3, ThetaStar, JPS, HPAStar and FlowField : cells on which building would cut
+	// every path from s to e are added to the ones already known
+	public void addSeparators(Vector s, Vector e) {
+		if (separators == null) {
+			separators = new Separators(nograph);
+		}
+		separators.add(nograph.getNode(s), nograph.getNode(e));
+	}
+
+	public void clearSeparators() {
+		if (separators != null) {
+			separators.reset();
+		}
+	}
+
 	public boolean isOpened(Vector p) {
 		switch (algo) {
 		case DIJKSTRA:
@@ -272,12 +627,63 @@ public class PathFinder {
 			return n.isAvailable();
 		case ASTAR3:
 		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case HPASTAR:
+		case FLOW_FIELD:
+		case NEXT_HOP:
 			return nograph.isAvailable(nograph.getNode(p));
 		}
 		return false;
 	}
 
-	// Only AStar3 and ThetaStar
+	public boolean isCrossing(Vector s, Vector e, Vector p) {
+		if ((nograph == null) || (s == null) || (e == null)) {
+			return true;
+		}
+		return nograph.isOnLine(nograph.getNode(s), nograph.getNode(e), nograph.getNode(p), true);
+	}
+
+	// Only AStar3, ThetaStar, JPS and HPAStar
+	public boolean isCached(Vector s, Vector e) {
+		return astarCache.containsKey(cacheKey(s, e));
+	}
+
+	public boolean isReverseSearch() {
+		return targetFieldCache != null;
+	}
+
+	public boolean isSnapshotSearchSupported() {
+		switch (algo) {
+		case ASTAR3:
+		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case HPASTAR:
+		case NEXT_HOP:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	public boolean isUsingFlowField() {
+		return algo == Algorithm.FLOW_FIELD;
+	}
+
+	// the path workers search with their own copy of the graph and share the
+	// landmarks, but they have neither the next hop table nor the target
+	// fields of the reverse search : these paths are read on the engine thread
+	public boolean isWorkerSearchSupported() {
+		return isSnapshotSearchSupported() && (algo != Algorithm.NEXT_HOP) && (targetFieldCache == null);
+	}
+
+	// Only AStar3, ThetaStar, JPS, HPAStar and FlowField
+	public boolean isSeparator(Vector p) {
+		return separators.isSeparator(nograph.getNode(p));
+	}
+
+	// Only AStar3, ThetaStar, JPS, HPAStar and FlowField
 	public boolean isPathAvailable(Vector s, Vector e, Vector excluding) {
 		// System.out.println("isPathAvailable(" + s + ", " + e + ", " +
 		// excluding + ")");
@@ -298,9 +704,112 @@ public class PathFinder {
 			break;
 		case ASTAR3:
 		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case FLOW_FIELD:
+			nograph.open(p.getXInt(), p.getYInt());
+			break;
+		case NEXT_HOP:
 			nograph.open(p.getXInt(), p.getYInt());
+			if (nextHops != null) {
+				nextHops.markOpened(nograph.getNode(p));
+			}
+			break;
+		case HPASTAR:
+			nograph.open(p.getXInt(), p.getYInt());
+			if (astar != null) {
+				((HPAStar) astar).markChanged(nograph.getNode(p));
+			}
 			break;
 		}
+
+		// the distances are no longer a lower bound : computed again at once,
+		// or not used until the background update is done
+		if (landmarks != null) {
+			landmarks.opened(nograph.getVersion());
+			landmarks.update(getSnapshot());
+		}
+	}
+
+	// a walk in the next hop table when possible, a live search otherwise
+	private Path search(int sn, int en) {
+		if (nextHops != null) {
+			Path path = nextHops.getPath(sn, en);
+			if (path != null) {
+				nbNextHopWalks++;
+				return path;
+			}
+			nbLiveSearches++;
+		}
+		return astar.getPath(sn, en);
+	}
+
+	// Drops all the cached paths (or Dijkstra trees)
+	public void setCacheCapacity(int capacity) {
+		if (dijkstraCache != null) {
+			dijkstraCache = new ClockCache<Dijkstra>(capacity);
+		} else {
+			astarCache = new ClockCache<CachedPath>(capacity);
+		}
+	}
+
+	// Only AStar3, ThetaStar, JPS and HPAStar : a path found on a snapshot
+	// of the current graph
+	public void putInCache(Vector s, Vector e, Path path) {
+		astarCache.put(cacheKey(s, e), new CachedPath(path, (path != null) ? footprint(nograph.getNode(s), path) : null));
+	}
+
+	// Only AStar3 and ThetaStar, and ThetaStar only on an 8-connected grid :
+	// 0 to go back to the euclidian distance alone. The distances are computed
+	// again on a full cache clearing, and after each change on the board when
+	// done in the background
+	public void setLandmarks(int nbLandmarks, boolean background) {
+		if (nograph == null) {
+			throw new RuntimeException("Not implemented");
+		}
+
+		if (landmarks != null) {
+			landmarks.shutdown();
+			landmarks = null;
+		}
+
+		if (nbLandmarks > 0) {
+			landmarks = new Landmarks(nograph, nbLandmarks);
+			if (background) {
+				landmarks.startBackgroundUpdates();
+			}
+		}
+
+		applyLandmarks();
+	}
+
+	// Only AStar3, ThetaStar, JPS, HPAStar and FlowField : the paths to a
+	// target are all read from a single search done backwards from this
+	// target. It is kept until a node some of its paths go through is closed,
+	// or a node is opened
+	public void setReverseSearch(boolean reverseSearch) {
+		if (nograph == null) {
+			throw new RuntimeException("Not implemented");
+		}
+
+		if (reverseSearch && (targetFieldCache == null)) {
+			targetFieldCache = new ClockCache<FlowField>(DEFAULT_TARGET_FIELD_CACHE_CAPACITY);
+			if (flowFieldCache == null) {
+				flowFieldCache = new HashMap<String, FlowField>();
+			}
+			astarCache.clear();
+		} else if (!reverseSearch && (targetFieldCache != null)) {
+			targetFieldCache = null;
+			if (algo != Algorithm.FLOW_FIELD) {
+				flowFieldCache = null;
+			}
+			astarCache.clear();
+		}
+	}
+
+	// size of a grid square on the board
+	public void setSquareSize(int squareSize) {
+		this.squareSize = squareSize;
 	}
 
 	public Path shortestPath(Vector s, Vector e) {
@@ -316,28 +825,43 @@ public class PathFinder {
 			return shortestPathAStar(s, e, useCache);
 		case ASTAR3:
 		case THETASTAR:
+		case LAZY_THETASTAR:
+		case JPS:
+		case HPASTAR:
+		case FLOW_FIELD:
+		case NEXT_HOP:
 			return shortestPathAStar3(s, e, useCache);
 		default:
 			return null;
 		}
 	}
 
+	// Only FlowField, or with the reverse search : the path leads to the
+	// nearest of the targets
+	public Path shortestPath(Vector s, List<Vector> targets) {
+		if (flowFieldCache == null) {
+			throw new RuntimeException("Not implemented");
+		}
+
+		return getFlowField(targets).getPath(nograph.getNode(s));
+	}
+
 	private Path shortestPathAStar(Vector s, Vector e, boolean useCache) {
 		Path path = null;
 		Node sn = getNode(s);
 		Node en = getNode(e);
 
 		if (useCache) {
-			Long cacheKey = (long) sn.getId() * (long) graph.size() + (long) en.getId();
-			if (astarCache.containsKey(cacheKey)) {
-				path = astarCache.get(cacheKey);
+			long cacheKey = (long) sn.getId() * (long) graph.size() + (long) en.getId();
+			CachedPath cached = astarCache.get(cacheKey);
+			if (cached != null) {
+				path = cached.path;
 			} else {
 				path = astar.getPath(sn, en);
 				// if (useSmoothing && (path != null)) {
 				// path = smooth(s, path);
 				// }
-				astarCache.put(cacheKey, path);
-				// System.out.println("Cache size : " + astarCache.size());
+				astarCache.put(cacheKey, new CachedPath(path, null));
 			}
 		} else {
 			path = astar.getPath(sn, en);
@@ -345,28 +869,37 @@ public class PathFinder {
 		return path;
 	}
 
-	private Path shortestPathAStar3(Vector s, Vector e, boolean useCache) {
-		Path path = null;
+	private CachedPath shortestPathAStar3(int sn, int en) {
+		long cacheKey = cacheKey(sn, en);
+		CachedPath cached = astarCache.get(cacheKey);
+		if (cached == null) {
+			Path path = null;
+			if ((targetFieldCache != null) && (sn >= 0) && (en >= 0)) {
+				path = getTargetField(en).getPath(sn);
+			} else {
+				path = search(sn, en);
+			}
+			// no path will still be no path when another node is closed
+			cached = new CachedPath(path, (path != null) ? footprint(sn, path) : null);
+			astarCache.put(cacheKey, cached);
+		}
+		return cached;
+	}
 
+	private Path shortestPathAStar3(Vector s, Vector e, boolean useCache) {
 		int sn = nograph.getNode(s);
 		int en = nograph.getNode(e);
 
 		if (useCache) {
-			Long cacheKey = (long) sn * (long) nograph.size() + (long) en;
-			if (astarCache.containsKey(cacheKey)) {
-				path = astarCache.get(cacheKey);
-			} else {
-				path = astar.getPath(sn, en);
-				// if (useSmoothing && (path != null)) {
-				// path = smooth(s, path);
-				// }
-				astarCache.put(cacheKey, path);
-				// System.out.println("Cache size : " + astarCache.size());
-			}
-		} else {
-			path = astar.getPath(sn, en);
+			return shortestPathAStar3(sn, en).path;
 		}
-		return path;
+		return search(sn, en);
+	}
+
+	// Only AStar3, ThetaStar, JPS and HPAStar : the path on the board is shared
+	// by all the units going between the same cells, it must not be modified
+	public Path shortestPathOnBoard(Vector s, Vector e) {
+		return toBoard(shortestPathAStar3(nograph.getNode(s), nograph.getNode(e)));
 	}
 
 	private Path shortestPathDijkstra(Vector s, Vector e, boolean useCache) {
@@ -376,14 +909,12 @@ public class PathFinder {
 		Node en = getNode(e);
 
 		if (useCache) {
-			Long cacheKey = (long) sn.getId();
-			if (dijkstraCache.containsKey(cacheKey)) {
-				dijkstra = dijkstraCache.get(cacheKey);
-			} else {
+			long cacheKey = (long) sn.getId();
+			dijkstra = dijkstraCache.get(cacheKey);
+			if (dijkstra == null) {
 				dijkstra = new Dijkstra(graph);
 				dijkstra.compute(sn);
 				dijkstraCache.put(cacheKey, dijkstra);
-				// System.out.println("Cache size : " + dijkstraCache.size());
 			}
 			path = dijkstra.getPath(en, true);
 		} else {
@@ -428,6 +959,35 @@ public class PathFinder {
 	// return npn;
 	// }
 
+	// Only AStar3, ThetaStar, JPS and HPAStar : the smoothed path is shared by
+	// all the units starting from the same position on the board, for instance
+	// all the ones spawned by a factory. It must not be modified
+	public Path smoothedPathOnBoard(Vector sOnBoard, Vector s, Vector e, float r, int nbstep) {
+		int sn = nograph.getNode(s);
+		int en = nograph.getNode(e);
+
+		// the path has usually just been asked for
+		CachedPath cached = astarCache.peek(cacheKey(sn, en));
+		if (cached == null) {
+			cached = shortestPathAStar3(sn, en);
+		}
+
+		Path onBoard = toBoard(cached);
+		if (onBoard == null) {
+			return null;
+		}
+
+		if ((cached.smoothed == null) || (cached.smoothedX != sOnBoard.getX()) || (cached.smoothedY != sOnBoard.getY()) || (cached.smoothedR != r) || (cached.smoothedNbStep != nbstep)) {
+			cached.smoothed = smoothOnBoard(sOnBoard, onBoard, r, nbstep).seal();
+			cached.smoothedX = sOnBoard.getX();
+			cached.smoothedY = sOnBoard.getY();
+			cached.smoothedR = r;
+			cached.smoothedNbStep = nbstep;
+		}
+
+		return cached.smoothed;
+	}
+
 	public Path smoothOnBoard(Vector sn, Path path, float r, int nbstep) {
 		for (int i = nbstep; i > 0; i--) {
 			path = smoothOnBoard(sn, path, r);
@@ -477,6 +1037,13 @@ public class PathFinder {
 		return np;
 	}
 
+	private Path toBoard(CachedPath cached) {
+		if ((cached.onBoard == null) && (cached.path != null)) {
+			cached.onBoard = Board.g2b(cached.path, squareSize).seal();
+		}
+		return cached.onBoard;
+	}
+
 	private boolean walkable(Vector n1, Vector n2) {
 		Vector p1 = Board.g2b(n1, squareSize);
 		Vector p2 = Board.g2b(n2, squareSize);
@@ -18,39 +18,44 @@
  */
 package name.herve.bastod.engine.pathfinder;
 
-import java.util.Iterator;
-
-import name.herve.bastod.engine.Engine;
 import name.herve.bastod.engine.units.Mobile;
 import name.herve.bastod.tools.Constants;
 import name.herve.bastod.tools.graph.Path;
 import name.herve.bastod.tools.math.Vector;
 
 /**
+ * Moves a unit along a path, which is only read and can be shared with other
+ * units.
+ * 
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class PathFollower {
 	private float angle;
-	private Iterator<Vector> it;
-	private Vector nextPosition;
+	private int next;
+	private Path path;
 	private Mobile unit;
 
-	public PathFollower(Mobile unit, Path path) {
+	public PathFollower(Mobile unit) {
 		super();
 		this.unit = unit;
-		it = path.iterator();
-		if (it.hasNext()) {
-			nextPosition = it.next();
-		} else {
-			nextPosition = null;
-		}
+		follow(null);
+	}
+
+	public void follow(Path path) {
+		this.path = path;
+		next = 0;
 		angle = 0;
 	}
-	
+
 	public float getAngle() {
 		return angle;
 	}
 
+	// index, in the path, of the waypoint the unit is going to
+	public int getNext() {
+		return next;
+	}
+
 	public void move(long delta) {
 		if (unit.getSpeedOnBoard() < unit.getMaxSpeedOnBoard()) {
 			unit.setSpeedOnBoard(Math.min(unit.getSpeedOnBoard() + unit.getAccelerationOnBoard() * delta / Constants.NANO, unit.getMaxSpeedOnBoard()));
@@ -59,26 +64,25 @@ public class PathFollower {
 		float moveCapacity = unit.getSpeedOnBoard() * delta / Constants.NANO;
 		
 		if (moveCapacity > 0) {
-			while ((moveCapacity > 0) && (nextPosition != null)) {
-				Vector direction = nextPosition.copy().remove(unit.getPositionOnBoard());
-				float distanceLeft = direction.length();
-				angle = direction.angleDeg();
+			Vector position = unit.getPositionOnBoard();
+			int size = path.size();
+			while ((moveCapacity > 0) && (next < size)) {
+				float dx = path.getX(next) - position.getX();
+				float dy = path.getY(next) - position.getY();
+				float distanceLeft = Vector.length(dx, dy);
+				angle = Vector.angleDeg(dx, dy);
 				
 				if (distanceLeft > 0) {
 					float move = Math.min(moveCapacity, distanceLeft);
-					direction.multiply(move / distanceLeft);
-					unit.getPositionOnBoard().add(direction);
+					float f = move / distanceLeft;
+					position.add(dx * f, dy * f);
 					moveCapacity -= move;
 				} else {
-					if (it.hasNext()) {
-						nextPosition = it.next();
-					} else {
-						nextPosition = null;
-					}
+					next++;
 				}
 			}
 			
-			if (nextPosition == null) {
+			if (next >= size) {
 				unit.setTargetOnBoard(null);
 				unit.setPath(null);
 			}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine.pathfinder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import name.herve.bastod.engine.pathfinder.PathFinder.Algorithm;
+import name.herve.bastod.tools.graph.HPAStar;
+import name.herve.bastod.tools.graph.Landmarks;
+import name.herve.bastod.tools.graph.NoGraph;
+import name.herve.bastod.tools.graph.NoGraphPathFinderAlgorithm;
+import name.herve.bastod.tools.graph.Path;
+import name.herve.bastod.tools.math.Vector;
+
+/**
+ * Searches the paths on worker threads. Each request is made on a snapshot of
+ * the graph. Each worker keeps its own copy of the graph and its own search
+ * state, and only applies to them the nodes changed since its previous
+ * request : HPAStar rebuilds the clusters of these nodes only. The results are
+ * polled by the engine at a later step.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class PathService {
+	public static class Request {
+		private Algorithm algo;
+		private Vector endOnGrid;
+		private RuntimeException failure;
+		private NoGraph graph;
+		private Landmarks landmarks;
+		private Object owner;
+		private Path result;
+		private Vector startOnGrid;
+
+		private Request(Object owner, Algorithm algo, NoGraph graph, Landmarks landmarks, Vector startOnGrid, Vector endOnGrid) {
+			super();
+			this.owner = owner;
+			this.algo = algo;
+			this.graph = graph;
+			this.landmarks = landmarks;
+			this.startOnGrid = startOnGrid;
+			this.endOnGrid = endOnGrid;
+			failure = null;
+			result = null;
+		}
+
+		public Vector getEndOnGrid() {
+			return endOnGrid;
+		}
+
+		// null when the search went well
+		public RuntimeException getFailure() {
+			return failure;
+		}
+
+		public int getGraphVersion() {
+			return graph.getVersion();
+		}
+
+		public Object getOwner() {
+			return owner;
+		}
+
+		// null when there is no path
+		public Path getResult() {
+			return result;
+		}
+
+		public Vector getStartOnGrid() {
+			return startOnGrid;
+		}
+
+		public boolean isFailed() {
+			return failure != null;
+		}
+	}
+
+	private class Worker implements Runnable {
+		private Algorithm algo;
+		private int[] changed;
+		private NoGraph graph;
+		private NoGraphPathFinderAlgorithm search;
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Request r = todo.take();
+					try {
+						if ((search == null) || (r.algo != algo) || !graph.isSameGrid(r.graph)) {
+							algo = r.algo;
+							graph = r.graph.snapshot();
+							changed = new int[graph.size()];
+							search = PathFinder.createAlgorithm(algo, graph);
+						} else if (graph.getVersion() != r.graph.getVersion()) {
+							int nb = graph.follow(r.graph, changed);
+							if (search instanceof HPAStar) {
+								for (int i = 0; i < nb; i++) {
+									((HPAStar) search).markChanged(changed[i]);
+								}
+							}
+						}
+						search.setLandmarks(r.landmarks);
+						r.result = search.getPath(graph.getNode(r.startOnGrid), graph.getNode(r.endOnGrid));
+					} catch (RuntimeException e) {
+						// the search state may be broken, it is rebuilt for the next request
+						graph = null;
+						search = null;
+						r.failure = e;
+					}
+					done.add(r);
+				}
+			} catch (InterruptedException e) {
+				// shutdown
+			}
+		}
+	}
+
+	private ConcurrentLinkedQueue<Request> done;
+	private BlockingQueue<Request> todo;
+	private Thread[] workers;
+
+	public PathService(int nbWorkers) {
+		super();
+
+		todo = new LinkedBlockingQueue<Request>();
+		done = new ConcurrentLinkedQueue<Request>();
+
+		workers = new Thread[nbWorkers];
+		for (int i = 0; i < nbWorkers; i++) {
+			workers[i] = new Thread(new Worker(), "PathService-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	public int getNbWorkers() {
+		return workers.length;
+	}
+
+	// null when no request is done
+	public Request poll() {
+		return done.poll();
+	}
+
+	public void shutdown() {
+		for (Thread w : workers) {
+			w.interrupt();
+		}
+	}
+
+	// the search is made on the current snapshot of the path finder graph,
+	// with its landmarks. See PathFinder.isWorkerSearchSupported
+	public Request submit(Object owner, PathFinder pathFinder, Vector startOnGrid, Vector endOnGrid) {
+		Request r = new Request(owner, pathFinder.getAlgorithm(), pathFinder.getSnapshot(), pathFinder.getLandmarks(), startOnGrid, endOnGrid);
+		todo.add(r);
+		return r;
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import name.herve.bastod.engine.Board;
+import name.herve.bastod.engine.BoardFactory;
+import name.herve.bastod.engine.Engine;
+import name.herve.bastod.engine.Game;
+import name.herve.bastod.engine.GameFactory;
+import name.herve.bastod.engine.Player;
+import name.herve.bastod.engine.players.ComputerPlayer;
+import name.herve.bastod.tools.Constants;
+import name.herve.bastod.tools.SLTDException;
+import name.herve.bastod.tools.conf.Configuration;
+import name.herve.bastod.tools.conf.OverrideConfiguration;
+
+/**
+ * Plays a list of matches between computer players as fast as possible, with
+ * a fixed time step and without any pause, spreading the matches across all
+ * the cores.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class BatchSimulator {
+	private class MatchTask extends RecursiveTask<MatchResult> {
+		private static final long serialVersionUID = -2380562163788478129L;
+
+		private Match match;
+
+		public MatchTask(Match match) {
+			super();
+			this.match = match;
+		}
+
+		@Override
+		protected MatchResult compute() {
+			try {
+				return play(match);
+			} catch (SLTDException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private int FPS;
+	private long maxDurationNano;
+	private ForkJoinPool pool;
+	private ForkJoinPool stepPool;
+
+	public BatchSimulator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public BatchSimulator(int parallelism) {
+		super();
+
+		pool = new ForkJoinPool(parallelism);
+		setFPS(50);
+		setMaxDurationSec(3600);
+		stepPool = null;
+	}
+
+	public MatchResult play(Match match) throws SLTDException {
+		Configuration conf = Configuration.load(match.getType().getFile());
+		if (!match.getOverrides().isEmpty()) {
+			conf = new OverrideConfiguration(conf, match.getOverrides());
+		}
+
+		BoardFactory boardFactory = new BoardFactory();
+		boardFactory.setSeed(match.getSeed());
+		Board board = boardFactory.loadMap(match.getMap());
+
+		Player[] players = new Player[2];
+		for (int i = 0; i < 2; i++) {
+			players[i] = new ComputerPlayer(i);
+		}
+
+		Game game = GameFactory.createGame(match.getType(), conf, players, board);
+
+		Engine engine = new Engine(match.getSeed());
+		engine.setGame(game);
+		engine.setFixedTimeStepMilli(1000 / FPS);
+		engine.setParallelPool(stepPool);
+		engine.start();
+
+		long frameTime = engine.getFixedTimeStepMilli() * Constants.NANO_MILLI;
+		int steps = 0;
+		while (!game.isOver() && (game.getNow() < maxDurationNano)) {
+			engine.step(frameTime);
+			steps++;
+		}
+
+		Player winner = null;
+		if (game.isOver()) {
+			if ((players[0].getScore() > 0) && (players[1].getScore() <= 0)) {
+				winner = players[0];
+			} else if ((players[1].getScore() > 0) && (players[0].getScore() <= 0)) {
+				winner = players[1];
+			}
+		}
+
+		return new MatchResult(match, players, winner, game.getNow(), steps);
+	}
+
+	public List<MatchResult> play(List<Match> matches) throws SLTDException {
+		List<MatchTask> tasks = new ArrayList<MatchTask>();
+		for (Match m : matches) {
+			MatchTask t = new MatchTask(m);
+			tasks.add(t);
+			pool.execute(t);
+		}
+
+		List<MatchResult> results = new ArrayList<MatchResult>();
+		try {
+			for (ForkJoinTask<MatchResult> t : tasks) {
+				results.add(t.join());
+			}
+		} catch (RuntimeException e) {
+			// the exception may have been wrapped again when joining
+			Throwable cause = e.getCause();
+			while (cause != null) {
+				if (cause instanceof SLTDException) {
+					throw (SLTDException) cause;
+				}
+				cause = cause.getCause();
+			}
+			throw e;
+		}
+
+		return results;
+	}
+
+	public void setFPS(int FPS) {
+		this.FPS = FPS;
+	}
+
+	public void setMaxDurationSec(int maxDurationSec) {
+		this.maxDurationNano = maxDurationSec * Constants.NANO;
+	}
+
+	// pool used inside each match to move the units and acquire the targets,
+	// not shut down by this simulator
+	public void setStepPool(ForkJoinPool stepPool) {
+		this.stepPool = stepPool;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+}
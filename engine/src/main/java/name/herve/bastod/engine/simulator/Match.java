@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import name.herve.bastod.engine.Game;
+
+/**
+ * Description of a match to be played by the {@link BatchSimulator}.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class Match {
+	private String map;
+	private Map<String, String> overrides;
+	private long seed;
+	private Game.Type type;
+
+	public Match(long seed, String map, Game.Type type) {
+		super();
+
+		this.seed = seed;
+		this.map = map;
+		this.type = type;
+		overrides = new HashMap<String, String>();
+	}
+
+	public Match addOverride(String key, String value) {
+		overrides.put(key, value);
+		return this;
+	}
+
+	public String getMap() {
+		return map;
+	}
+
+	public Map<String, String> getOverrides() {
+		return overrides;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public Game.Type getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return type + " - " + map + " - " + seed + (overrides.isEmpty() ? "" : " - " + overrides);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine.simulator;
+
+import java.text.DecimalFormat;
+
+import name.herve.bastod.engine.Player;
+import name.herve.bastod.engine.Statistics;
+import name.herve.bastod.tools.Constants;
+
+/**
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class MatchResult {
+	private long durationNano;
+	private Match match;
+	private Player[] players;
+	private int steps;
+	private Player winner;
+
+	public MatchResult(Match match, Player[] players, Player winner, long durationNano, int steps) {
+		super();
+
+		this.match = match;
+		this.players = players;
+		this.winner = winner;
+		this.durationNano = durationNano;
+		this.steps = steps;
+	}
+
+	public long getDurationNano() {
+		return durationNano;
+	}
+
+	public float getDurationSec() {
+		return (float) durationNano / (float) Constants.NANO;
+	}
+
+	public Match getMatch() {
+		return match;
+	}
+
+	public int getScore(int player) {
+		return players[player].getScore();
+	}
+
+	public Statistics getStatistics(int player) {
+		return players[player].getStats();
+	}
+
+	public int getSteps() {
+		return steps;
+	}
+
+	// null for a draw
+	public Player getWinner() {
+		return winner;
+	}
+
+	public boolean isDraw() {
+		return winner == null;
+	}
+
+	@Override
+	public String toString() {
+		DecimalFormat df = new DecimalFormat("0.00");
+		return match + " - " + (isDraw() ? "draw" : winner.getColor()) + " in " + df.format(getDurationSec()) + " s - " + players[0] + " - " + players[1];
+	}
+}
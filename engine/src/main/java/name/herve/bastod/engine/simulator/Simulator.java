@@ -52,6 +52,7 @@ public class Simulator {
 
 	public void start(Game game) {
 		engine.setGame(game);
+		engine.setFixedTimeStepMilli(1000 / FPS);
 		
 		Player[] players = game.getPlayers().toArray(new Player[2]);
 		
@@ -18,10 +18,12 @@
  */
 package name.herve.bastod.engine.units;
 
+import java.util.Arrays;
 import java.util.List;
 
 import name.herve.bastod.engine.Player;
 import name.herve.bastod.engine.Unit;
+import name.herve.bastod.engine.UnitView;
 import name.herve.bastod.tools.math.Vector;
 
 /**
@@ -31,9 +33,13 @@ public abstract class AbstractUnit implements Unit {
 	private int id;
 	private Player player;
 	private Vector positionOnBoard;
+	private int[] slots;
 
 	public AbstractUnit() {
 		super();
+
+		slots = new int[UnitView.NB_VIEWS];
+		Arrays.fill(slots, -1);
 	}
 
 	@Override
@@ -61,6 +67,11 @@ public abstract class AbstractUnit implements Unit {
 		return positionOnBoard;
 	}
 
+	@Override
+	public int getSlot(int view) {
+		return slots[view];
+	}
+
 	@Override
 	public void init(int boardSquareSize) {
 	}
@@ -69,6 +80,11 @@ public abstract class AbstractUnit implements Unit {
 		this.id = id;
 	}
 
+	@Override
+	public void setSlot(int view, int slot) {
+		slots[view] = slot;
+	}
+
 	@Override
 	public void setPlayer(Player player) {
 		this.player = player;
@@ -26,6 +26,7 @@ import name.herve.bastod.engine.Unit;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public interface Firing extends Unit {
+	long getNextFiringTime();
 	boolean isAbleToFire(long now);
 	boolean hasTarget();
 	void acquireTarget(Player enemy);
@@ -28,6 +28,7 @@ import name.herve.bastod.tools.math.Vector;
 public interface Mobile extends Unit {
 	float getAccelerationOnBoard();
 	float getMaxSpeedOnBoard();
+	int getNextWaypoint();
 	Path getPath();
 	int getScoreValue();
 	float getSpeedOnBoard();
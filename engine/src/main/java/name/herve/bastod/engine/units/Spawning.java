@@ -25,6 +25,8 @@ import name.herve.bastod.engine.Unit;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public interface Spawning extends Unit {
+	// metal aside
+	long getNextSpawnTime();
 	boolean isSpawnEnabled();
 	void setSpawnEnabled(boolean se);
 	boolean isAbleToSpawn(long now);
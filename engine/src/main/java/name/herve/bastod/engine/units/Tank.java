@@ -45,18 +45,8 @@ public class Tank extends AbstractUnit implements Mobile, Destructible {
 	public Tank(int maxArmor, float maxSpeedOnGrid, float accelerationOnGrid, int scoreValue) {
 		super();
 
-		this.maxArmor = maxArmor;
-		this.armor = maxArmor;
-		this.accelerationOnGrid = accelerationOnGrid;
-		this.maxSpeedOnGrid = maxSpeedOnGrid;
-		this.scoreValue = scoreValue;
-		
-		path = null;
-		targetOnBoard = null;
-		targetReached = false;
-		targetSet = false;
-		targetable = true;
-		pf = null;
+		pf = new PathFollower(this);
+		reset(maxArmor, maxSpeedOnGrid, accelerationOnGrid, scoreValue);
 	}
 
 	@Override
@@ -66,7 +56,7 @@ public class Tank extends AbstractUnit implements Mobile, Destructible {
 
 	@Override
 	public float getAngle() {
-		if (pf != null) {
+		if (path != null) {
 			return pf.getAngle();
 		}
 		return 0;
@@ -87,6 +77,11 @@ public class Tank extends AbstractUnit implements Mobile, Destructible {
 		return maxSpeedOnBoard;
 	}
 
+	@Override
+	public int getNextWaypoint() {
+		return pf.getNext();
+	}
+
 	@Override
 	public Path getPath() {
 		return path;
@@ -136,7 +131,7 @@ public class Tank extends AbstractUnit implements Mobile, Destructible {
 
 	@Override
 	public void move(long delta) {
-		if (pf != null) {
+		if (path != null) {
 			pf.move(delta);
 		}
 	}
@@ -147,14 +142,27 @@ public class Tank extends AbstractUnit implements Mobile, Destructible {
 		armor -= amount;
 	}
 
+	// back to a new tank, reused from the pool of its player
+	public void reset(int maxArmor, float maxSpeedOnGrid, float accelerationOnGrid, int scoreValue) {
+		this.maxArmor = maxArmor;
+		this.armor = maxArmor;
+		this.accelerationOnGrid = accelerationOnGrid;
+		this.maxSpeedOnGrid = maxSpeedOnGrid;
+		this.scoreValue = scoreValue;
+
+		path = null;
+		unsmoothedPath = null;
+		targetOnBoard = null;
+		targetReached = false;
+		targetSet = false;
+		targetable = true;
+		pf.follow(null);
+	}
+
 	@Override
 	public void setPath(Path path) {
 		this.path = path;
-		if ((path != null)) {
-			pf = new PathFollower(this, path);
-		} else {
-			pf = null;
-		}
+		pf.follow(path);
 	}
 	
 	@Override
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import name.herve.bastod.engine.Game.Type;
+import name.herve.bastod.engine.simulator.BatchSimulator;
+import name.herve.bastod.engine.simulator.Match;
+import name.herve.bastod.engine.simulator.MatchResult;
+import name.herve.bastod.tools.SLTDException;
+
+/**
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestBatchSimulator {
+	public static void main(String[] args) throws SLTDException {
+		List<Match> matches = new ArrayList<Match>();
+		for (long seed = 0; seed < 8; seed++) {
+			for (String speed : new String[] { "1.0", "1.2" }) {
+				matches.add(new Match(seed, "* Random", Type.TWO_PLAYERS).addOverride(Engine.CF_TANK_SPEED_F, speed));
+			}
+		}
+
+		BatchSimulator simul = new BatchSimulator();
+		simul.setMaxDurationSec(600);
+
+		long start = System.currentTimeMillis();
+		List<MatchResult> results = simul.play(matches);
+		long end = System.currentTimeMillis();
+		simul.shutdown();
+
+		for (MatchResult r : results) {
+			System.out.println(r);
+		}
+		System.out.println(results.size() + " matches played in " + (end - start) + " ms");
+	}
+}
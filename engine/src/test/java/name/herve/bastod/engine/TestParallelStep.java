@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import java.util.concurrent.ForkJoinPool;
+
+import name.herve.bastod.engine.Game.Type;
+import name.herve.bastod.engine.simulator.BatchSimulator;
+import name.herve.bastod.engine.simulator.Match;
+import name.herve.bastod.engine.simulator.MatchResult;
+import name.herve.bastod.tools.SLTDException;
+
+/**
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestParallelStep {
+	public static void main(String[] args) throws SLTDException {
+		ForkJoinPool stepPool = new ForkJoinPool();
+		int nbDiff = 0;
+
+		for (long seed = 0; seed < 4; seed++) {
+			for (String map : new String[] { "* Random", "* Custom" }) {
+				Match match = new Match(seed, map, Type.TWO_PLAYERS);
+
+				BatchSimulator simul = new BatchSimulator(1);
+				simul.setMaxDurationSec(600);
+
+				long start = System.currentTimeMillis();
+				MatchResult sequential = simul.play(match);
+				long seqTime = System.currentTimeMillis() - start;
+
+				simul.setStepPool(stepPool);
+				start = System.currentTimeMillis();
+				MatchResult parallel = simul.play(match);
+				long parTime = System.currentTimeMillis() - start;
+				simul.shutdown();
+
+				boolean same = sequential.toString().equals(parallel.toString()) && (sequential.getSteps() == parallel.getSteps());
+				if (!same) {
+					nbDiff++;
+				}
+				System.out.println((same ? "OK   " : "DIFF ") + sequential + " (" + seqTime + " ms / " + parTime + " ms)");
+			}
+		}
+
+		stepPool.shutdown();
+		System.out.println(nbDiff + " differences");
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.engine;
+
+import name.herve.bastod.engine.Game.Type;
+import name.herve.bastod.engine.players.ComputerPlayer;
+import name.herve.bastod.engine.units.Mobile;
+import name.herve.bastod.tools.SLTDException;
+import name.herve.bastod.tools.conf.Configuration;
+import name.herve.bastod.tools.graph.Path;
+import name.herve.bastod.tools.math.Vector;
+
+/**
+ * Closes cells on the path a tank is following : the tank has to plan again
+ * when the cell is ahead of it, and keeps its path when the cell is behind.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestPathInvalidation {
+	private static Engine engine;
+	private static Game game;
+
+	private static boolean isFree(Vector onGrid) {
+		Board board = game.getBoard();
+		if ((onGrid == null) || !board.isOpened(onGrid)) {
+			return false;
+		}
+		for (Player p : game.getPlayers()) {
+			if (board.getEndPositions(p).contains(onGrid)) {
+				return false;
+			}
+			UnitView<Mobile> mobiles = p.getMobiles();
+			for (int i = 0; i < mobiles.size(); i++) {
+				if (onGrid.equals(board.fromBoardToGrid(mobiles.get(i).getPositionOnBoard()))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static void reopen(Vector onGrid) {
+		Board board = game.getBoard();
+		board.openOnBoard(board.fromGridToBoard(onGrid));
+		board.clearPathFinderCache();
+	}
+
+	public static void main(String[] args) throws SLTDException {
+		long seed = 1864750354l;
+		Configuration conf = Configuration.load(Type.TWO_PLAYERS.getFile());
+		BoardFactory boardFactory = new BoardFactory();
+		boardFactory.setSeed(seed);
+		Player[] players = new Player[] { new ComputerPlayer(0), new ComputerPlayer(1) };
+		game = GameFactory.createGame(Type.TWO_PLAYERS, conf, players, boardFactory.loadMap("* Random"));
+		engine = new Engine(seed);
+		engine.setGame(game);
+		engine.setFixedTimeStepMilli(20);
+		engine.start();
+
+		Board board = game.getBoard();
+		int nbAhead = 0;
+		int nbBehind = 0;
+		int nbErrors = 0;
+
+		for (int step = 0; (step < 20000) && !game.isOver() && ((nbAhead < 20) || (nbBehind < 20)); step++) {
+			engine.step(20000000L);
+
+			for (Player p : game.getPlayers()) {
+				UnitView<Mobile> mobiles = p.getMobiles();
+				for (int i = 0; i < mobiles.size(); i++) {
+					Mobile m = mobiles.get(i);
+					Path path = m.getPath();
+					int next = m.getNextWaypoint();
+					if ((path == null) || (next < 1) || (next >= path.size())) {
+						continue;
+					}
+
+					// the first cell ahead which is not the one the tank is on
+					Vector here = board.fromBoardToGrid(m.getPositionOnBoard());
+					Vector ahead = null;
+					for (int k = next; (k < path.size()) && (ahead == null); k++) {
+						Vector c = board.fromBoardToGrid(path.get(k));
+						if (!c.equals(here)) {
+							ahead = c;
+						}
+					}
+					Vector behind = board.fromBoardToGrid(path.get(0));
+
+					if ((nbAhead <= nbBehind) && isFree(ahead)) {
+						engine.closeOnBoard(board.fromGridToBoard(ahead), true);
+						if (m.getPath() != null) {
+							System.out.println("ERROR : " + m + " kept its path through " + ahead);
+							nbErrors++;
+						}
+						reopen(ahead);
+						nbAhead++;
+						continue;
+					}
+
+					if ((nbBehind < nbAhead) && isFree(behind) && !board.isCrossing(m.getPositionOnBoard(), path, next, behind)) {
+						engine.closeOnBoard(board.fromGridToBoard(behind), true);
+						if (m.getPath() != path) {
+							System.out.println("ERROR : " + m + " planned again for " + behind + ", which is behind it");
+							nbErrors++;
+						}
+						reopen(behind);
+						nbBehind++;
+					}
+				}
+			}
+		}
+
+		System.out.println(nbAhead + " cells closed ahead, " + nbBehind + " behind, " + nbErrors + " errors");
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.cache;
+
+import java.util.Arrays;
+
+// See http://en.wikipedia.org/wiki/Page_replacement_algorithm#Clock
+
+/**
+ * Bounded cache with primitive long keys, stored in an open addressing table
+ * (linear probing, backward shift on removal). When the cache is full, the
+ * CLOCK hand goes around the table and evicts the first entry which has not
+ * been read since its last pass.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class ClockCache<V> {
+	private final static byte EMPTY = 0;
+	private final static byte USED = 1;
+	private final static byte REFERENCED = 2;
+
+	private int capacity;
+	private long evictions;
+	private int hand;
+	private long hits;
+	private long[] keys;
+	private int mask;
+	private long misses;
+	private int size;
+	private byte[] states;
+	private Object[] values;
+
+	public ClockCache(int capacity) {
+		super();
+
+		this.capacity = Math.max(1, capacity);
+
+		// load factor kept under 1/2
+		int length = Integer.highestOneBit(2 * this.capacity - 1) << 1;
+		keys = new long[length];
+		values = new Object[length];
+		states = new byte[length];
+		mask = length - 1;
+
+		clear();
+		resetStatistics();
+	}
+
+	public void clear() {
+		Arrays.fill(states, EMPTY);
+		Arrays.fill(values, null);
+		size = 0;
+		hand = 0;
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	private void evict() {
+		while (true) {
+			if (states[hand] == REFERENCED) {
+				states[hand] = USED;
+			} else if (states[hand] == USED) {
+				evictions++;
+				removeAt(hand);
+				return;
+			}
+			hand = (hand + 1) & mask;
+		}
+	}
+
+	private int find(long key) {
+		int slot = hash(key);
+		while (states[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// counts a hit or a miss, a null value may also be a cached one
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int slot = find(key);
+		if (slot < 0) {
+			misses++;
+			return null;
+		}
+		hits++;
+		states[slot] = REFERENCED;
+		return (V) values[slot];
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public int getTableLength() {
+		return states.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V getValueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	private int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	public boolean isUsedAt(int slot) {
+		return states[slot] != EMPTY;
+	}
+
+	// neither counted nor marked as read
+	@SuppressWarnings("unchecked")
+	public V peek(long key) {
+		int slot = find(key);
+		return (slot >= 0) ? (V) values[slot] : null;
+	}
+
+	public void put(long key, V value) {
+		int slot = find(key);
+		if (slot < 0) {
+			if (size == capacity) {
+				evict();
+			}
+			slot = hash(key);
+			while (states[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+		states[slot] = USED;
+	}
+
+	public void remove(long key) {
+		int slot = find(key);
+		if (slot >= 0) {
+			removeAt(slot);
+		}
+	}
+
+	// the following entries of the probe sequence are shifted back, so that
+	// when scanning the table, the same slot has to be looked at again
+	public void removeAt(int slot) {
+		states[slot] = EMPTY;
+		values[slot] = null;
+		size--;
+
+		int hole = slot;
+		int next = (slot + 1) & mask;
+		while (states[next] != EMPTY) {
+			int home = hash(keys[next]);
+			// can the entry at next go back to the hole ?
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				states[hole] = states[next];
+				states[next] = EMPTY;
+				values[next] = null;
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+	}
+
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return size + "/" + capacity + " entries, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+}
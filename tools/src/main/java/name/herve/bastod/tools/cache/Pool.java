@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives back the objects released instead of allocating new ones. The objects
+ * are not reset by the pool, and nothing checks that an object released is
+ * not used anymore. Not thread safe.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public abstract class Pool<T> {
+	private List<T> free;
+	private int highWaterMark;
+	private long nbCreated;
+	private int nbLive;
+
+	public Pool() {
+		super();
+
+		free = new ArrayList<T>();
+		highWaterMark = 0;
+		nbCreated = 0;
+		nbLive = 0;
+	}
+
+	public T acquire() {
+		T o = null;
+		if (free.isEmpty()) {
+			o = create();
+			nbCreated++;
+		} else {
+			o = free.remove(free.size() - 1);
+		}
+
+		nbLive++;
+		if (nbLive > highWaterMark) {
+			highWaterMark = nbLive;
+		}
+
+		return o;
+	}
+
+	protected abstract T create();
+
+	// greatest number of objects in use at the same time
+	public int getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	public long getNbCreated() {
+		return nbCreated;
+	}
+
+	public int getNbFree() {
+		return free.size();
+	}
+
+	public int getNbLive() {
+		return nbLive;
+	}
+
+	public void release(T o) {
+		nbLive--;
+		free.add(o);
+	}
+
+	@Override
+	public String toString() {
+		return "live=" + nbLive + " free=" + free.size() + " high=" + highWaterMark + " created=" + nbCreated;
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.conf;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import name.herve.bastod.tools.SLTDException;
+
+/**
+ * Configuration where some of the values of another configuration are
+ * replaced.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class OverrideConfiguration extends Configuration {
+	private Configuration base;
+	private Map<String, String> overrides;
+
+	public OverrideConfiguration(Configuration base, Map<String, String> overrides) throws SLTDException {
+		super(base.getFile());
+
+		this.base = base;
+		this.overrides = new HashMap<String, String>(overrides);
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		Set<String> keys = new TreeSet<String>(base.getKeys());
+		keys.addAll(overrides.keySet());
+		return keys;
+	}
+
+	@Override
+	public String getString(String key) throws SLTDException {
+		String v = overrides.get(key);
+		if (v != null) {
+			return v;
+		}
+		return base.getString(key);
+	}
+
+	@Override
+	protected void load() throws SLTDException {
+		// nothing to load, the values come from the base configuration
+	}
+}
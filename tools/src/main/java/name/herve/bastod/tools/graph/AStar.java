@@ -19,10 +19,9 @@
 package name.herve.bastod.tools.graph;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-import name.herve.bastod.tools.sortedlist.MyLinkedList;
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
 
 // See http://en.wikipedia.org/wiki/A*_search_algorithm
 
@@ -30,37 +29,32 @@ import name.herve.bastod.tools.sortedlist.MyLinkedList;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class AStar extends GraphPathFinderAlgorithm {
-	private interface Heuristic {
-		int estimateCost(Node n1, Node n2);
-	}
-	
-	private class EuclidianHeuristic implements Heuristic {
-		@Override
-		public int estimateCost(Node n1, Node n2) {
-			return (int) (FLOAT_TO_INT * n1.getPosition().distance(n2.getPosition()));
-		}
-	}
-	
-//	private class ManhattanHeuristic implements Heuristic {
-//		@Override
-//		public float estimateCost(Node n1, Node n2) {
-//			return n1.getPosition().manhattan(n2.getPosition());
-//		}
-//	}
-
-	private Heuristic h;
+	private int[] cf;
+	private boolean[] closed;
+	private CompiledGraph csr;
+	private int[] f;
+	private int[] g;
+	private MyMinBinaryHeap open;
+	private SearchStamps stamps;
 
 	public AStar(Graph g) {
 		super(g);
-		
-		h = new EuclidianHeuristic();
 	}
 
-	private List<Node> reconstructPath(int[] c, int current) {
+	private void see(int n) {
+		if (stamps.see(n)) {
+			closed[n] = false;
+			f[n] = 0;
+			g[n] = 0;
+			cf[n] = -1;
+		}
+	}
+
+	private List<Node> reconstructPath(int current) {
 		List<Node> path = null;
 
-		if (c[current] >= 0) {
-			path = reconstructPath(c, c[current]);
+		if (cf[current] >= 0) {
+			path = reconstructPath(cf[current]);
 			path.add(graph.get(current));
 		} else {
 			path = new ArrayList<Node>();
@@ -77,59 +71,55 @@ public class AStar extends GraphPathFinderAlgorithm {
 	@Override
 	public List<Node> getPathNodes(Node start, Node end) {
 		// System.out.println("AStar path " + start + " - " + end);
-		
-		int sz = graph.size();
-
-		boolean[] closed = new boolean[sz];
-		Arrays.fill(closed, false);
-
-		int[] f = new int[sz];
-		Arrays.fill(f, 0);
-
-		int[] g = new int[sz];
-		Arrays.fill(g, 0);
-
-		int[] cf = new int[sz];
-		Arrays.fill(cf, -1);
+		csr = graph.compile();
+		if ((f == null) || (f.length != csr.size())) {
+			int sz = csr.size();
+			closed = new boolean[sz];
+			f = new int[sz];
+			g = new int[sz];
+			cf = new int[sz];
+			stamps = new SearchStamps(sz);
+			open = new MyMinBinaryHeap(sz);
+			open.setCost(f);
+		}
 
-		MyLinkedList open2 = new MyLinkedList();
-		open2.setCost(f);
-		open2.reset();
+		stamps.startSearch();
+		open.reset();
 		
-		int ios = graph.indexOf(start);
-		int ioe = graph.indexOf(end);
-		open2.add(ios);
-		f[ios] = g[ios] + h.estimateCost(start, end);
+		int ios = start.getId();
+		int ioe = end.getId();
+		see(ios);
+		open.add(ios);
+		f[ios] = g[ios] + csr.distance(ios, ioe);
 
-		while (!open2.isEmpty()) {
-			int current = open2.get();
+		while (!open.isEmpty()) {
+			int current = open.get();
 
 			if (current == ioe) {
-				return reconstructPath(cf, current);
+				return reconstructPath(current);
 			}
 
 			closed[current] = true;
 
-			Node cn = graph.get(current);
-			for (Node nb : cn) {
-				int inb = graph.indexOf(nb);
-				if (closed[inb] || !nb.isAvailable()) {
+			for (int e = csr.g_offset[current]; e < csr.g_offset[current + 1]; e++) {
+				int inb = csr.g_target[e];
+				see(inb);
+				if (closed[inb] || !csr.g_a[inb]) {
 					continue;
 				}
 
-				int gAttempt = g[current] + (int)(FLOAT_TO_INT * cn.getCost(nb));
-				int nbIdx = open2.getIndex(inb);
+				int gAttempt = g[current] + csr.g_cost[e];
+				int nbIdx = open.getIndex(inb);
 
 				if ((nbIdx == -1) || (gAttempt < g[inb])) {
 					cf[inb] = current;
 					g[inb] = gAttempt;
-					int finb = gAttempt + h.estimateCost(nb, end);
-					f[inb] = finb;
+					f[inb] = gAttempt + csr.distance(inb, ioe);
 
 					if (nbIdx != -1) {
-						open2.updatedCostAtIndex(nbIdx);
+						open.updatedCostAtIndex(nbIdx);
 					} else {
-						open2.add(inb);
+						open.add(inb);
 					}
 				}
 			}
@@ -19,7 +19,6 @@
 package name.herve.bastod.tools.graph;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
@@ -36,58 +35,44 @@ public class AStar2 extends GraphPathFinderAlgorithm {
 	private int[] g;
 	private int[] cf;
 
-	private boolean g_a[];
+	private CompiledGraph csr;
 	private int g_x[];
 	private int g_y[];
-	private int g_c[];
-	private int g_nb[];
 
 	private MyMinBinaryHeap open;
+	private SearchStamps stamps;
 
 	public AStar2(Graph graph) {
 		super(graph);
 		
 		this.graph = graph;
 
-		int sz = graph.size();
+		csr = graph.compile();
+
+		int sz = csr.size();
 		closed = new boolean[sz];
 		f = new int[sz];
 		g = new int[sz];
 		cf = new int[sz];
+		stamps = new SearchStamps(sz);
 
 		open = new MyMinBinaryHeap(sz);
 		open.setCost(f);
 
-		dumpGraphInInternalStructure();
-	}
-
-	private void dumpGraphInInternalStructure() {
-		int sz = graph.size();
 		g_x = new int[sz];
 		g_y = new int[sz];
-		g_a = new boolean[sz];
-		g_nb = new int[sz * 8];
-		g_c = new int[sz * 8];
-
-		int idx;
-
-		for (Node node : graph) {
-			int n = graph.indexOf(node);
-			g_a[n] = node.isAvailable();
-			g_x[n] = node.getPosition().getXInt();
-			g_y[n] = node.getPosition().getYInt();
-			int nb = 0;
-			for (Node nbn : node) {
-				idx = n * 8 + nb;
-				g_nb[idx] = graph.indexOf(nbn);
-				g_c[idx] = (int) (node.getCost(nbn) * FLOAT_TO_INT);
-				nb++;
-			}
-			for (; nb < 8; nb++) {
-				idx = n * 8 + nb;
-				g_nb[idx] = -1;
-				g_c[idx] = Integer.MAX_VALUE;
-			}
+		for (int n = 0; n < sz; n++) {
+			g_x[n] = (int) csr.g_x[n];
+			g_y[n] = (int) csr.g_y[n];
+		}
+	}
+
+	private void see(int n) {
+		if (stamps.see(n)) {
+			closed[n] = false;
+			f[n] = 0;
+			g[n] = 0;
+			cf[n] = -1;
 		}
 	}
 
@@ -107,15 +92,13 @@ public class AStar2 extends GraphPathFinderAlgorithm {
 	@Override
 	public List<Node> getPathNodes(Node start, Node end) {
 		//System.out.println("AStar2.path(" + start + ", " + end + ")");
-		Arrays.fill(closed, false);
-		Arrays.fill(f, 0);
-		Arrays.fill(g, 0);
-		Arrays.fill(cf, -1);
+		stamps.startSearch();
 		open.reset();
 
-		int ios = graph.indexOf(start);
-		int ioe = graph.indexOf(end);
+		int ios = start.getId();
+		int ioe = end.getId();
 
+		see(ios);
 		open.add(ios);
 
 		int dx;
@@ -134,31 +117,30 @@ public class AStar2 extends GraphPathFinderAlgorithm {
 
 			closed[current] = true;
 
-			for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
-				int inb = g_nb[current * 8 + nbIdx];
-				if (inb >= 0) {
-					if (closed[inb] || !g_a[inb]) {
-						continue;
-					}
+			for (int e = csr.g_offset[current]; e < csr.g_offset[current + 1]; e++) {
+				int inb = csr.g_target[e];
+				see(inb);
+				if (closed[inb] || !csr.g_a[inb]) {
+					continue;
+				}
 
-					int gAttempt = g[current] + g_c[current * 8 + nbIdx];
+				int gAttempt = g[current] + csr.g_cost[e];
 
-					int inbHeapIdx = open.getIndex(inb);
-					if ((inbHeapIdx == -1) || (gAttempt < g[inb])) {
-						cf[inb] = current;
-						g[inb] = gAttempt;
+				int inbHeapIdx = open.getIndex(inb);
+				if ((inbHeapIdx == -1) || (gAttempt < g[inb])) {
+					cf[inb] = current;
+					g[inb] = gAttempt;
 
-						dx = g_x[inb] - g_x[ioe];
-						dy = g_y[inb] - g_y[ioe];
-						int finb = gAttempt + (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+					dx = g_x[inb] - g_x[ioe];
+					dy = g_y[inb] - g_y[ioe];
+					int finb = gAttempt + (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
 
-						f[inb] = finb;
+					f[inb] = finb;
 
-						if (inbHeapIdx == -1) {
-							open.add(inb);
-						} else {
-							open.updatedCostAtIndex(inbHeapIdx);
-						}
+					if (inbHeapIdx == -1) {
+						open.add(inb);
+					} else {
+						open.updatedCostAtIndex(inbHeapIdx);
 					}
 				}
 			}
@@ -18,8 +18,6 @@
  */
 package name.herve.bastod.tools.graph;
 
-import java.util.Arrays;
-
 import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
 
 // See http://en.wikipedia.org/wiki/A*_search_algorithm
@@ -35,6 +33,7 @@ public class AStar3 extends NoGraphPathFinderAlgorithm {
 	private int[] cf;
 
 	private MyMinBinaryHeap open;
+	private SearchStamps stamps;
 
 	public AStar3(NoGraph nograph) {
 		super(nograph);
@@ -44,11 +43,32 @@ public class AStar3 extends NoGraphPathFinderAlgorithm {
 		f = new int[sz];
 		g = new int[sz];
 		cf = new int[sz];
+		stamps = new SearchStamps(sz);
 
 		open = new MyMinBinaryHeap(sz);
 		open.setCost(f);
 	}
 
+	private int h(int n, int ioe) {
+		int dx = nograph.g_x[n] - nograph.g_x[ioe];
+		int dy = nograph.g_y[n] - nograph.g_y[ioe];
+
+		int e = (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+		if (landmarks != null) {
+			e = Math.max(e, landmarks.estimate(n, ioe));
+		}
+		return e;
+	}
+
+	private void see(int n) {
+		if (stamps.see(n)) {
+			closed[n] = false;
+			f[n] = 0;
+			g[n] = 0;
+			cf[n] = -1;
+		}
+	}
+
 	private Path reconstructPath(int current) {
 		Path path = null;
 
@@ -64,23 +84,17 @@ public class AStar3 extends NoGraphPathFinderAlgorithm {
 
 	@Override
 	public Path getPath(int ios, int ioe, int excluding) {
-		Arrays.fill(closed, false);
+		stamps.startSearch();
 		if (excluding >= 0) {
+			see(excluding);
 			closed[excluding] = true;
 		}
-		Arrays.fill(f, 0);
-		Arrays.fill(g, 0);
-		Arrays.fill(cf, -1);
 		open.reset();
 
+		see(ios);
 		open.add(ios);
 
-		int dx;
-		int dy;
-
-		dx = nograph.g_x[ios] - nograph.g_x[ioe];
-		dy = nograph.g_y[ios] - nograph.g_y[ioe];
-		f[ios] = g[ios] + (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+		f[ios] = g[ios] + h(ios, ioe);
 
 		while (!open.isEmpty()) {
 			int current = open.get();
@@ -90,10 +104,12 @@ public class AStar3 extends NoGraphPathFinderAlgorithm {
 			}
 
 			closed[current] = true;
+			nbExpanded++;
 
 			for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
 				int inb = nograph.g_nb[current * 8 + nbIdx];
 				if (inb >= 0) {
+					see(inb);
 					if (closed[inb] || !nograph.g_a[inb]) {
 						continue;
 					}
@@ -105,11 +121,7 @@ public class AStar3 extends NoGraphPathFinderAlgorithm {
 						cf[inb] = current;
 						g[inb] = gAttempt;
 
-						dx = nograph.g_x[inb] - nograph.g_x[ioe];
-						dy = nograph.g_y[inb] - nograph.g_y[ioe];
-						int finb = gAttempt + (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
-
-						f[inb] = finb;
+						f[inb] = gAttempt + h(inb, ioe);
 
 						if (inbHeapIdx == -1) {
 							open.add(inb);
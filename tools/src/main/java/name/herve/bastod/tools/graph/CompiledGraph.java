@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+/**
+ * Compressed sparse row copy of a {@link Graph} : the neighbours of node
+ * <code>n</code> are <code>g_target[g_offset[n]]</code> to
+ * <code>g_target[g_offset[n + 1] - 1]</code>, nodes being addressed by their
+ * id. The availability of the nodes is kept in sync by the graph.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class CompiledGraph {
+	boolean g_a[];
+	int g_cost[];
+	int g_offset[];
+	int g_target[];
+	float g_x[];
+	float g_y[];
+	int nbEdges;
+	int sz;
+
+	CompiledGraph(Graph graph) {
+		super();
+
+		sz = graph.size();
+		g_a = new boolean[sz];
+		g_x = new float[sz];
+		g_y = new float[sz];
+		g_offset = new int[sz + 1];
+
+		nbEdges = 0;
+		for (Node node : graph) {
+			nbEdges += node.getNbNeighbours();
+		}
+		g_target = new int[nbEdges];
+		g_cost = new int[nbEdges];
+
+		int e = 0;
+		for (int n = 0; n < sz; n++) {
+			Node node = graph.get(n);
+			g_a[n] = node.isAvailable();
+			g_x[n] = node.getPosition().getX();
+			g_y[n] = node.getPosition().getY();
+			g_offset[n] = e;
+			for (Node nbn : node) {
+				g_target[e] = nbn.getId();
+				g_cost[e] = (int) (PathFinderAlgorithm.FLOAT_TO_INT * node.getCost(nbn));
+				e++;
+			}
+		}
+		g_offset[sz] = e;
+	}
+
+	// same value as the euclidian distance between the node positions
+	int distance(int n1, int n2) {
+		float dx = g_x[n2] - g_x[n1];
+		float dy = g_y[n2] - g_y[n1];
+		return (int) (PathFinderAlgorithm.FLOAT_TO_INT * (float) Math.sqrt(dx * dx + dy * dy));
+	}
+
+	public int getNbEdges() {
+		return nbEdges;
+	}
+
+	public boolean isAvailable(int n) {
+		return g_a[n];
+	}
+
+	void setAvailable(int n, boolean available) {
+		g_a[n] = available;
+	}
+
+	public int size() {
+		return sz;
+	}
+}
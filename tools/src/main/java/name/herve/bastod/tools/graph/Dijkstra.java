@@ -19,12 +19,10 @@
 package name.herve.bastod.tools.graph;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
-import name.herve.bastod.tools.sortedlist.MySortedList;
 
 // See http://en.wikipedia.org/wiki/Dijkstra%27s_algorithm
 
@@ -32,8 +30,11 @@ import name.herve.bastod.tools.sortedlist.MySortedList;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class Dijkstra extends GraphPathFinderAlgorithm {
+	private CompiledGraph csr;
 	private int[] dist;
+	private MyMinBinaryHeap open;
 	private int[] previous;
+	private SearchStamps stamps;
 
 	public Dijkstra(Graph g) {
 		super(g);
@@ -56,9 +57,9 @@ public class Dijkstra extends GraphPathFinderAlgorithm {
 	public List<Node> getPathNodes(Node end, boolean reverse) {
 		List<Node> path = new ArrayList<Node>();
 
-		int u = graph.indexOf(end);
+		int u = end.getId();
 
-		while (previous[u] >= 0) {
+		while (stamps.isSeen(u) && (previous[u] >= 0)) {
 			path.add(graph.get(u));
 			u = previous[u];
 		}
@@ -76,52 +77,48 @@ public class Dijkstra extends GraphPathFinderAlgorithm {
 
 	public void compute(Node start, Node end) {
 		// System.out.println("Dijkstra compute " + start + " - " + end);
-		int sz = graph.size();
-
-		dist = new int[sz];
-		Arrays.fill(dist, Integer.MAX_VALUE);
-
-		previous = new int[sz];
-		Arrays.fill(previous, -1);
+		csr = graph.compile();
+		if ((dist == null) || (dist.length != csr.size())) {
+			int sz = csr.size();
+			dist = new int[sz];
+			previous = new int[sz];
+			stamps = new SearchStamps(sz);
+			open = new MyMinBinaryHeap(sz);
+			open.setCost(dist);
+		}
 
-		MySortedList q2 = new MyMinBinaryHeap(sz);
-		q2.setCost(dist);
-		q2.reset();
+		stamps.startSearch();
+		open.reset();
 
-		int ios = graph.indexOf(start);
+		// only the reached nodes go in the heap, the other ones stay unseen
+		int ios = start.getId();
+		see(ios);
 		dist[ios] = 0;
-		q2.add(ios);
+		open.add(ios);
 
-		for (int n = 0; n < sz; n++) {
-			if ((n != ios) && graph.get(n).isAvailable()) {
-				q2.add(n);
-			}
-		}
-
-		int e = graph.indexOf(end);
+		int e = (end != null) ? end.getId() : -1;
 
-		while (!q2.isEmpty()) {
-			int u = q2.get();
+		while (!open.isEmpty()) {
+			int u = open.get();
 
 			if ((end != null) && (u == e)) {
 				break;
 			}
 
-			if (dist[u] == Float.MAX_VALUE) {
-				break;
-			}
-
-			Node nu = graph.get(u);
-
-			for (Node nv : nu) {
-				if (nv.isAvailable()) {
-					int v = graph.indexOf(nv);
-					int alt = dist[u] + (int) (FLOAT_TO_INT * nu.getCost(nv));
+			for (int ev = csr.g_offset[u]; ev < csr.g_offset[u + 1]; ev++) {
+				int v = csr.g_target[ev];
+				if (csr.g_a[v]) {
+					boolean reached = !see(v);
+					int alt = dist[u] + csr.g_cost[ev];
 					if (alt < dist[v]) {
 						dist[v] = alt;
 						previous[v] = u;
 
-						q2.updatedCostAtIndex(q2.getIndex(v));
+						if (reached) {
+							open.updatedCostAtIndex(open.getIndex(v));
+						} else {
+							open.add(v);
+						}
 					}
 				}
 			}
@@ -132,4 +129,13 @@ public class Dijkstra extends GraphPathFinderAlgorithm {
 	public Node getNode(int id) {
 		return graph.get(id);
 	}
+
+	private boolean see(int n) {
+		if (stamps.see(n)) {
+			dist[n] = Integer.MAX_VALUE;
+			previous[n] = -1;
+			return true;
+		}
+		return false;
+	}
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
+
+/**
+ * Integration field computed once from a set of goals : every node knows its
+ * distance to the nearest goal, which goal it is and the next node to go to.
+ * With a single goal, it holds the paths from every node to this goal. The
+ * path extracted from a start node is kept, sealed, until the next compute().
+ *
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class FlowField {
+	public final static int UNREACHABLE = Integer.MAX_VALUE;
+
+	private int[] dist;
+	// nodes under the extracted paths
+	private BitSet footprint;
+	private int[] goal;
+	private int[] next;
+	private NoGraph nograph;
+	private MyMinBinaryHeap open;
+	private Path[] paths;
+
+	public FlowField(NoGraph nograph) {
+		super();
+
+		this.nograph = nograph;
+
+		int sz = nograph.size();
+		dist = new int[sz];
+		goal = new int[sz];
+		next = new int[sz];
+
+		open = new MyMinBinaryHeap(sz);
+		open.setCost(dist);
+
+		paths = new Path[sz];
+		footprint = new BitSet(sz);
+	}
+
+	public void compute(int[] goals) {
+		Arrays.fill(dist, UNREACHABLE);
+		Arrays.fill(next, -1);
+		Arrays.fill(paths, null);
+		footprint.clear();
+
+		open.reset();
+
+		for (int i = 0; i < goals.length; i++) {
+			int g = goals[i];
+			if (nograph.isAvailable(g) && (dist[g] != 0)) {
+				dist[g] = 0;
+				goal[g] = i;
+				open.add(g);
+			}
+		}
+
+		while (!open.isEmpty()) {
+			int u = open.get();
+
+			for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+				int v = nograph.g_nb[u * 8 + nbIdx];
+				if ((v >= 0) && nograph.g_a[v]) {
+					int alt = dist[u] + (int) (PathFinderAlgorithm.FLOAT_TO_INT * nograph.g_c[u * 8 + nbIdx]);
+					if (alt < dist[v]) {
+						int vInOpen = (dist[v] == UNREACHABLE) ? -1 : open.getIndex(v);
+						dist[v] = alt;
+						goal[v] = goal[u];
+						next[v] = u;
+						if (vInOpen == -1) {
+							open.add(v);
+						} else {
+							open.updatedCostAtIndex(vInOpen);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private Path extractPath(int start) {
+		int current = getNext(start);
+
+		if (current < 0) {
+			if (dist[start] == 0) {
+				return new Path().seal();
+			}
+			return null;
+		}
+
+		// keep only the nodes where the line of sight is broken, as ThetaStar
+		// would do
+		Path path = new Path();
+		int anchor = start;
+		int previous = current;
+		current = next[current];
+
+		footprint.set(start);
+		while (current >= 0) {
+			if (!nograph.lineOfSight(anchor, current)) {
+				path.add(nograph.getPosition(previous));
+				nograph.markLine(anchor, previous, footprint);
+				anchor = previous;
+			}
+			previous = current;
+			current = next[current];
+		}
+
+		path.add(nograph.getPosition(previous));
+		nograph.markLine(anchor, previous, footprint);
+
+		return path.seal();
+	}
+
+	public int getDistance(int node) {
+		return dist[node];
+	}
+
+	// index, in the goals given to compute(), of the goal reached from node,
+	// -1 if none is
+	public int getGoal(int node) {
+		if (dist[node] != UNREACHABLE) {
+			return goal[node];
+		}
+		int n = getNext(node);
+		return (n >= 0) ? goal[n] : -1;
+	}
+
+	public int getNext(int node) {
+		if (next[node] >= 0 || dist[node] == 0 || nograph.g_a[node]) {
+			return next[node];
+		}
+
+		// closed node (a unit standing where something has just been built) :
+		// leave it through its best neighbour
+		int best = -1;
+		int bestDist = UNREACHABLE;
+		for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+			int v = nograph.g_nb[node * 8 + nbIdx];
+			if ((v >= 0) && (dist[v] != UNREACHABLE)) {
+				int d = dist[v] + (int) (PathFinderAlgorithm.FLOAT_TO_INT * nograph.g_c[node * 8 + nbIdx]);
+				if (d < bestDist) {
+					bestDist = d;
+					best = v;
+				}
+			}
+		}
+		return best;
+	}
+
+	// shared by all the callers starting from the same node : it must not be
+	// modified
+	public Path getPath(int start) {
+		if (paths[start] == null) {
+			paths[start] = extractPath(start);
+		}
+		return paths[start];
+	}
+
+	public boolean isReachable(int node) {
+		return getNext(node) >= 0 || dist[node] == 0;
+	}
+
+	// true when closing node changes neither the paths already extracted nor
+	// the distances of the other nodes : no node goes to the goals through it
+	public boolean isValidWithout(int node) {
+		if (footprint.get(node)) {
+			return false;
+		}
+
+		for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+			int v = nograph.g_nb[node * 8 + nbIdx];
+			if ((v >= 0) && (next[v] == node)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -26,6 +26,7 @@ import java.util.List;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class Graph implements Iterable<Node> {
+	private CompiledGraph compiled;
 	private int id;
 	private List<Node> nodes;
 
@@ -33,16 +34,34 @@ public class Graph implements Iterable<Node> {
 		super();
 		id = 0;
 		nodes = new ArrayList<Node>();
+		compiled = null;
 	}
 
 	public void addEdge(Node node1, Node node2, float c) {
 		node1.addNeighbour(node2, c);
 		node2.addNeighbour(node1, c);
+		compiled = null;
 	}
 
 	public void addNode(Node n) {
 		n.setId(id++);
+		n.setGraph(this);
 		nodes.add(n);
+		compiled = null;
+	}
+
+	void availabilityChanged(Node n) {
+		if (compiled != null) {
+			compiled.setAvailable(n.getId(), n.isAvailable());
+		}
+	}
+
+	// built again only when nodes or edges have been added since the last call
+	public CompiledGraph compile() {
+		if (compiled == null) {
+			compiled = new CompiledGraph(this);
+		}
+		return compiled;
 	}
 
 	@Override
@@ -59,6 +78,9 @@ public class Graph implements Iterable<Node> {
 	}
 
 	public int indexOf(Node o) {
+		if ((o != null) && (o.getGraph() == this)) {
+			return o.getId();
+		}
 		return nodes.indexOf(o);
 	}
 }
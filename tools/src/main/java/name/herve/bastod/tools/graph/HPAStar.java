@@ -0,0 +1,575 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
+
+// See Botea, Muller, Schaeffer, "Near optimal hierarchical path-finding"
+
+/**
+ * Hierarchical A* : the grid is cut in square clusters, linked by the
+ * entrances found along their borders. The costs between the entrances of a
+ * cluster are computed once, a query is then an A* on this small abstract
+ * graph, refined back to the grid one cluster at a time. Closing or opening a
+ * node only rebuilds its cluster (and its neighbour when the node is on the
+ * border).
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class HPAStar extends NoGraphPathFinderAlgorithm {
+	private class Cluster {
+		private int[] costs;
+		private boolean dirty;
+		private int nb;
+		private int[] nodes;
+		private int[][] partners;
+		private Map<Long, int[]> refined;
+		private int x0;
+		private int x1;
+		private int y0;
+		private int y1;
+
+		public Cluster(int x0, int y0, int x1, int y1) {
+			super();
+
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+
+			nb = 0;
+			nodes = new int[0];
+			partners = new int[0][];
+			costs = new int[0];
+			refined = new HashMap<Long, int[]>();
+			dirty = true;
+		}
+
+		private boolean contains(int n) {
+			int x = nograph.g_x[n];
+			int y = nograph.g_y[n];
+			return (x >= x0) && (x < x1) && (y >= y0) && (y < y1);
+		}
+
+		private int local(int n) {
+			return (nograph.g_x[n] - x0) * (y1 - y0) + nograph.g_y[n] - y0;
+		}
+	}
+
+	public final static int DEFAULT_CLUSTER_SIZE = 10;
+	private final static int MAX_ENTRANCE_WIDTH = 6;
+	private final static int UNREACHABLE = Integer.MAX_VALUE;
+
+	// abstract search, on the nodes touched by the current query only
+	private int[] aClosed;
+	private int[] aF;
+	private int[] aG;
+	private int[] aNode;
+	private MyMinBinaryHeap aOpen;
+	private int[] aParent;
+	private int aSize;
+	private int[] localId;
+	private int[] localStamp;
+	private int stamp;
+
+	// search restricted to a cluster
+	private int[] cDist;
+	private MyMinBinaryHeap cOpen;
+	private int[] cParent;
+
+	private int[] cells;
+	private int[] clusterOf;
+	private Cluster[] clusters;
+	private int clusterSize;
+	private int[] entranceIndex;
+	private JumpPointSearch flat;
+	private int[] goalCosts;
+	private int knownVersion;
+	private int nbCells;
+	private int ncx;
+	private int ncy;
+	private int[] startCosts;
+
+	public HPAStar(NoGraph nograph) {
+		this(nograph, DEFAULT_CLUSTER_SIZE);
+	}
+
+	public HPAStar(NoGraph nograph, int clusterSize) {
+		super(nograph);
+
+		this.clusterSize = clusterSize;
+
+		int sz = nograph.size();
+		ncx = (nograph.w + clusterSize - 1) / clusterSize;
+		ncy = (nograph.h + clusterSize - 1) / clusterSize;
+		clusters = new Cluster[ncx * ncy];
+		for (int cx = 0; cx < ncx; cx++) {
+			for (int cy = 0; cy < ncy; cy++) {
+				clusters[cx * ncy + cy] = new Cluster(cx * clusterSize, cy * clusterSize, Math.min(nograph.w, (cx + 1) * clusterSize), Math.min(nograph.h, (cy + 1) * clusterSize));
+			}
+		}
+
+		clusterOf = new int[sz];
+		for (int n = 0; n < sz; n++) {
+			clusterOf[n] = (nograph.g_x[n] / clusterSize) * ncy + nograph.g_y[n] / clusterSize;
+		}
+
+		entranceIndex = new int[sz];
+		Arrays.fill(entranceIndex, -1);
+
+		localId = new int[sz];
+		localStamp = new int[sz];
+		stamp = 0;
+		growAbstract(64);
+
+		cDist = new int[clusterSize * clusterSize];
+		cParent = new int[clusterSize * clusterSize];
+		cOpen = new MyMinBinaryHeap(clusterSize * clusterSize);
+		cOpen.setCost(cDist);
+
+		cells = new int[16];
+		flat = new JumpPointSearch(nograph);
+		knownVersion = nograph.version;
+	}
+
+	private int abstractId(int n) {
+		if (localStamp[n] != stamp) {
+			if (aSize == aNode.length) {
+				growAbstract(2 * aSize);
+			}
+			localStamp[n] = stamp;
+			localId[n] = aSize;
+			aNode[aSize] = n;
+			aG[aSize] = UNREACHABLE;
+			aParent[aSize] = -1;
+			aClosed[aSize] = 0;
+			aSize++;
+		}
+		return localId[n];
+	}
+
+	private void addCell(int n) {
+		if (cells.length == nbCells) {
+			cells = Arrays.copyOf(cells, 2 * nbCells);
+		}
+		cells[nbCells++] = n;
+	}
+
+	// appends the cells from 'from' (excluded) to 'to', inside cluster c
+	private boolean addCells(Cluster c, int from, int to) {
+		if (!clusterSearch(c, from, to)) {
+			return false;
+		}
+		int first = nbCells;
+		for (int l = c.local(to); l != c.local(from); l = cParent[l]) {
+			addCell(globalNode(c, l));
+		}
+		reverse(first, nbCells);
+		return true;
+	}
+
+	private void addTransitions(Cluster c, int x, int y, int dx, int dy, int length, int ox, int oy, List<int[]> transitions) {
+		// (x, y) + k * (dx, dy) walks along the border inside c, (ox, oy) goes
+		// to the other side
+		int runStart = -1;
+		for (int k = 0; k <= length; k++) {
+			boolean open = false;
+			if (k < length) {
+				int xi = x + k * dx;
+				int yi = y + k * dy;
+				open = nograph.isAvailable(xi, yi) && nograph.isAvailable(xi + ox, yi + oy);
+			}
+			if (open && (runStart < 0)) {
+				runStart = k;
+			} else if (!open && (runStart >= 0)) {
+				int runLength = k - runStart;
+				if (runLength < MAX_ENTRANCE_WIDTH) {
+					addTransition(x, y, dx, dy, ox, oy, runStart + runLength / 2, transitions);
+				} else {
+					addTransition(x, y, dx, dy, ox, oy, runStart, transitions);
+					addTransition(x, y, dx, dy, ox, oy, k - 1, transitions);
+				}
+				runStart = -1;
+			}
+		}
+	}
+
+	private void addTransition(int x, int y, int dx, int dy, int ox, int oy, int k, List<int[]> transitions) {
+		int xi = x + k * dx;
+		int yi = y + k * dy;
+		transitions.add(new int[] { nograph.getNode(xi, yi), nograph.getNode(xi + ox, yi + oy) });
+	}
+
+	private void buildCosts(Cluster c) {
+		c.costs = new int[c.nb * c.nb];
+		for (int i = 0; i < c.nb; i++) {
+			clusterSearch(c, c.nodes[i], -1);
+			for (int j = 0; j < c.nb; j++) {
+				c.costs[i * c.nb + j] = cDist[c.local(c.nodes[j])];
+			}
+		}
+		c.refined.clear();
+	}
+
+	private void buildEntrances(Cluster c) {
+		for (int i = 0; i < c.nb; i++) {
+			entranceIndex[c.nodes[i]] = -1;
+		}
+
+		List<int[]> transitions = new ArrayList<int[]>();
+		int width = c.x1 - c.x0;
+		int height = c.y1 - c.y0;
+		if (c.x0 > 0) {
+			addTransitions(c, c.x0, c.y0, 0, 1, height, -1, 0, transitions);
+		}
+		if (c.x1 < nograph.w) {
+			addTransitions(c, c.x1 - 1, c.y0, 0, 1, height, 1, 0, transitions);
+		}
+		if (c.y0 > 0) {
+			addTransitions(c, c.x0, c.y0, 1, 0, width, 0, -1, transitions);
+		}
+		if (c.y1 < nograph.h) {
+			addTransitions(c, c.x0, c.y1 - 1, 1, 0, width, 0, 1, transitions);
+		}
+
+		int[] nodes = new int[transitions.size()];
+		int[][] partners = new int[transitions.size()][];
+		int nb = 0;
+		for (int[] t : transitions) {
+			int idx = entranceIndex[t[0]];
+			if (idx < 0) {
+				idx = nb++;
+				entranceIndex[t[0]] = idx;
+				nodes[idx] = t[0];
+				partners[idx] = new int[] { t[1] };
+			} else {
+				partners[idx] = Arrays.copyOf(partners[idx], partners[idx].length + 1);
+				partners[idx][partners[idx].length - 1] = t[1];
+			}
+		}
+
+		c.nb = nb;
+		c.nodes = Arrays.copyOf(nodes, nb);
+		c.partners = Arrays.copyOf(partners, nb);
+	}
+
+	// Dijkstra from source, without leaving the cluster, stopping on target
+	// if any
+	private boolean clusterSearch(Cluster c, int source, int target) {
+		int size = (c.x1 - c.x0) * (c.y1 - c.y0);
+		Arrays.fill(cDist, 0, size, UNREACHABLE);
+		cOpen.reset();
+
+		int ls = c.local(source);
+		cDist[ls] = 0;
+		cParent[ls] = ls;
+		cOpen.add(ls);
+
+		int lt = (target >= 0) ? c.local(target) : -1;
+		while (!cOpen.isEmpty()) {
+			int l = cOpen.get();
+			if (l == lt) {
+				return true;
+			}
+			int u = globalNode(c, l);
+			for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+				int v = nograph.g_nb[u * 8 + nbIdx];
+				if ((v >= 0) && nograph.g_a[v] && c.contains(v)) {
+					int lv = c.local(v);
+					int alt = cDist[l] + (int) (FLOAT_TO_INT * nograph.g_c[u * 8 + nbIdx]);
+					if (alt < cDist[lv]) {
+						boolean inOpen = cDist[lv] != UNREACHABLE;
+						cDist[lv] = alt;
+						cParent[lv] = l;
+						if (inOpen) {
+							cOpen.updatedCostAtIndex(cOpen.getIndex(lv));
+						} else {
+							cOpen.add(lv);
+						}
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private int dist(int s1, int s2) {
+		int dx = Math.abs(nograph.g_x[s1] - nograph.g_x[s2]);
+		int dy = Math.abs(nograph.g_y[s1] - nograph.g_y[s2]);
+
+		if (nograph.diagonal) {
+			return (int) (FLOAT_TO_INT * (Math.max(dx, dy) + (float) (Math.sqrt(2) - 1) * Math.min(dx, dy)));
+		}
+		return FLOAT_TO_INT * (dx + dy);
+	}
+
+	public int getNbEntrances() {
+		update();
+		int nb = 0;
+		for (Cluster c : clusters) {
+			nb += c.nb;
+		}
+		return nb;
+	}
+
+	@Override
+	public Path getPath(int start, int end) {
+		return getPath(start, end, -1);
+	}
+
+	@Override
+	public Path getPath(int start, int goal, int excluding) {
+		if (excluding >= 0) {
+			return flat.getPath(start, goal, excluding);
+		}
+
+		if (start == goal) {
+			return new Path();
+		}
+		if (!nograph.g_a[goal]) {
+			return null;
+		}
+
+		update();
+
+		Cluster cs = clusters[clusterOf[start]];
+		Cluster cg = clusters[clusterOf[goal]];
+
+		nbCells = 0;
+		addCell(start);
+		if ((cs == cg) && addCells(cs, start, goal)) {
+			return nograph.pullString(cells, nbCells);
+		}
+
+		if (!searchAbstract(start, goal, cs, cg)) {
+			// on an 8-connected grid, a diagonal move between two clusters
+			// may be the only way through, and a closed start (a unit on a
+			// node which has just been built) is not an entrance
+			if (nograph.diagonal || !nograph.g_a[start]) {
+				return flat.getPath(start, goal);
+			}
+			return null;
+		}
+
+		return nograph.pullString(cells, nbCells);
+	}
+
+	private int globalNode(Cluster c, int l) {
+		int ch = c.y1 - c.y0;
+		return nograph.getNode(c.x0 + l / ch, c.y0 + l % ch);
+	}
+
+	private void growAbstract(int capacity) {
+		aNode = (aNode == null) ? new int[capacity] : Arrays.copyOf(aNode, capacity);
+		aG = (aG == null) ? new int[capacity] : Arrays.copyOf(aG, capacity);
+		aF = (aF == null) ? new int[capacity] : Arrays.copyOf(aF, capacity);
+		aParent = (aParent == null) ? new int[capacity] : Arrays.copyOf(aParent, capacity);
+		aClosed = (aClosed == null) ? new int[capacity] : Arrays.copyOf(aClosed, capacity);
+
+		MyMinBinaryHeap heap = new MyMinBinaryHeap(capacity);
+		heap.setCost(aF);
+		heap.reset();
+		if (aOpen != null) {
+			while (!aOpen.isEmpty()) {
+				heap.add(aOpen.get());
+			}
+		}
+		aOpen = heap;
+	}
+
+	// the node has just been closed or opened
+	public void markChanged(int n) {
+		Cluster c = clusters[clusterOf[n]];
+		c.dirty = true;
+
+		int x = nograph.g_x[n];
+		int y = nograph.g_y[n];
+		int cx = clusterOf[n] / ncy;
+		int cy = clusterOf[n] % ncy;
+		if ((x == c.x0) && (cx > 0)) {
+			clusters[(cx - 1) * ncy + cy].dirty = true;
+		}
+		if ((x == c.x1 - 1) && (cx < ncx - 1)) {
+			clusters[(cx + 1) * ncy + cy].dirty = true;
+		}
+		if ((y == c.y0) && (cy > 0)) {
+			clusters[cx * ncy + cy - 1].dirty = true;
+		}
+		if ((y == c.y1 - 1) && (cy < ncy - 1)) {
+			clusters[cx * ncy + cy + 1].dirty = true;
+		}
+
+		knownVersion = nograph.version;
+	}
+
+	private void relax(int from, int n, int cost, int goal) {
+		int id = abstractId(n);
+		if (aClosed[id] == 1) {
+			return;
+		}
+		int alt = aG[from] + cost;
+		if (alt < aG[id]) {
+			boolean inOpen = aG[id] != UNREACHABLE;
+			aG[id] = alt;
+			aF[id] = alt + dist(n, goal);
+			aParent[id] = from;
+			if (inOpen) {
+				aOpen.updatedCostAtIndex(aOpen.getIndex(id));
+			} else {
+				aOpen.add(id);
+			}
+		}
+	}
+
+	private void reverse(int from, int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int t = cells[i];
+			cells[i] = cells[j];
+			cells[j] = t;
+		}
+	}
+
+	private boolean searchAbstract(int start, int goal, Cluster cs, Cluster cg) {
+		// costs from the start and to the goal, inside their clusters
+		clusterSearch(cs, start, -1);
+		startCosts = (startCosts == null || startCosts.length < cs.nb) ? new int[Math.max(16, cs.nb)] : startCosts;
+		for (int j = 0; j < cs.nb; j++) {
+			startCosts[j] = cDist[cs.local(cs.nodes[j])];
+		}
+		clusterSearch(cg, goal, -1);
+		goalCosts = (goalCosts == null || goalCosts.length < cg.nb) ? new int[Math.max(16, cg.nb)] : goalCosts;
+		for (int j = 0; j < cg.nb; j++) {
+			goalCosts[j] = cDist[cg.local(cg.nodes[j])];
+		}
+
+		stamp++;
+		aSize = 0;
+		aOpen.reset();
+
+		int s = abstractId(start);
+		aG[s] = 0;
+		aF[s] = dist(start, goal);
+		aOpen.add(s);
+
+		int g = -1;
+		while (!aOpen.isEmpty()) {
+			int u = aOpen.get();
+			int n = aNode[u];
+			if (n == goal) {
+				g = u;
+				break;
+			}
+			aClosed[u] = 1;
+
+			if (u == s) {
+				for (int j = 0; j < cs.nb; j++) {
+					if (startCosts[j] != UNREACHABLE) {
+						relax(u, cs.nodes[j], startCosts[j], goal);
+					}
+				}
+			}
+
+			int idx = entranceIndex[n];
+			if (idx >= 0) {
+				Cluster c = clusters[clusterOf[n]];
+				for (int j = 0; j < c.nb; j++) {
+					int cost = c.costs[idx * c.nb + j];
+					if ((j != idx) && (cost != UNREACHABLE)) {
+						relax(u, c.nodes[j], cost, goal);
+					}
+				}
+				for (int p : c.partners[idx]) {
+					relax(u, p, FLOAT_TO_INT, goal);
+				}
+				if ((c == cg) && (goalCosts[idx] != UNREACHABLE)) {
+					relax(u, goal, goalCosts[idx], goal);
+				}
+			}
+		}
+
+		if (g < 0) {
+			return false;
+		}
+
+		// abstract path, from the goal back to the start
+		int nb = 0;
+		int[] hops = new int[aSize];
+		for (int u = g; u != s; u = aParent[u]) {
+			hops[nb++] = aNode[u];
+		}
+		hops[nb++] = start;
+
+		// refined one hop after the other, the paths between two entrances
+		// of a cluster are kept until the cluster is rebuilt
+		for (int i = nb - 1; i > 0; i--) {
+			int from = hops[i];
+			int to = hops[i - 1];
+			Cluster c = clusters[clusterOf[from]];
+			if (!c.contains(to)) {
+				addCell(to);
+			} else if ((from == start) || (to == goal)) {
+				addCells(c, from, to);
+			} else {
+				long key = (long) from * nograph.size() + to;
+				int[] segment = c.refined.get(key);
+				if (segment == null) {
+					int first = nbCells;
+					addCells(c, from, to);
+					segment = Arrays.copyOfRange(cells, first, nbCells);
+					c.refined.put(key, segment);
+				} else {
+					for (int n : segment) {
+						addCell(n);
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void update() {
+		if (knownVersion != nograph.version) {
+			// changed without being told where
+			for (Cluster c : clusters) {
+				c.dirty = true;
+			}
+			knownVersion = nograph.version;
+		}
+
+		for (Cluster c : clusters) {
+			if (c.dirty) {
+				buildEntrances(c);
+			}
+		}
+		for (Cluster c : clusters) {
+			if (c.dirty) {
+				buildCosts(c);
+				c.dirty = false;
+			}
+		}
+	}
+}
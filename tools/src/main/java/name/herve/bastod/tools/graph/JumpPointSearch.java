@@ -0,0 +1,407 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
+
+// See http://harablog.wordpress.com/2011/09/07/jump-point-search/
+
+/**
+ * A* on a uniform cost grid where only the jump points are pushed in the
+ * open list. Straight (and diagonal) runs without forced neighbours are
+ * skipped in a single scan. Where the straight runs stop is also kept in
+ * tables (as in JPS+), rebuilt when the grid changes. The grid path is then
+ * pulled with the line of sight, so that the result looks like the ThetaStar
+ * one.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class JumpPointSearch extends NoGraphPathFinderAlgorithm {
+	private final static float SQRT2_MINUS_1 = (float) (Math.sqrt(2) - 1);
+
+	private int[] cells;
+	private boolean closedGoalAllowed;
+	private boolean[] closed;
+	private int excluded;
+	private int[] f;
+	private int[] g;
+	private int goal;
+	private int h;
+	private int[] jumpPoints;
+	private MyMinBinaryHeap open;
+	private int[] parent;
+	private SearchStamps stamps;
+	// per direction and node : coordinate of the jump point ending the
+	// straight run, or -(last walkable coordinate) - 1 if it hits a wall
+	private int[] straightJumps;
+	private int straightJumpsVersion;
+	private boolean useStraightJumps;
+	private int w;
+
+	public JumpPointSearch(NoGraph nograph) {
+		super(nograph);
+
+		w = nograph.w;
+		h = nograph.h;
+
+		int sz = nograph.size();
+		closed = new boolean[sz];
+		f = new int[sz];
+		g = new int[sz];
+		parent = new int[sz];
+		stamps = new SearchStamps(sz);
+		jumpPoints = new int[sz];
+		cells = new int[sz];
+		goal = -1;
+		excluded = -1;
+
+		straightJumps = new int[(nograph.diagonal ? 4 : 2) * sz];
+		straightJumpsVersion = -1;
+
+		open = new MyMinBinaryHeap(sz);
+		open.setCost(f);
+	}
+
+	private void addSuccessor(int s, int x, int y, int dx, int dy) {
+		int jp = nograph.diagonal ? jump8(x, y, dx, dy) : jump4(x, y, dx, dy);
+		if (jp < 0) {
+			return;
+		}
+		see(jp);
+		if (closed[jp]) {
+			return;
+		}
+
+		int gAttempt = g[s] + dist(s, jp);
+		if (parent[jp] == -1) {
+			parent[jp] = s;
+			g[jp] = gAttempt;
+			f[jp] = gAttempt + dist(jp, goal);
+			open.add(jp);
+		} else if (gAttempt < g[jp]) {
+			parent[jp] = s;
+			g[jp] = gAttempt;
+			f[jp] = gAttempt + dist(jp, goal);
+			open.updatedCostAtIndex(open.getIndex(jp));
+		}
+	}
+
+	// octile distance, which is also the exact length of the straight and
+	// diagonal runs between two jump points
+	private int dist(int s1, int s2) {
+		int dx = Math.abs(nograph.g_x[s1] - nograph.g_x[s2]);
+		int dy = Math.abs(nograph.g_y[s1] - nograph.g_y[s2]);
+
+		if (nograph.diagonal) {
+			return (int) (FLOAT_TO_INT * (Math.max(dx, dy) + SQRT2_MINUS_1 * Math.min(dx, dy)));
+		}
+		return FLOAT_TO_INT * (dx + dy);
+	}
+
+	@Override
+	public Path getPath(int start, int end) {
+		return getPath(start, end, -1);
+	}
+
+	@Override
+	public Path getPath(int start, int goal, int excluding) {
+		this.goal = goal;
+		excluded = (excluding != goal) ? excluding : -1;
+		closedGoalAllowed = excluding >= 0;
+
+		// the tables only know the grid as it is, without exclusion
+		useStraightJumps = (excluded < 0) && !closedGoalAllowed;
+		if (useStraightJumps && (straightJumpsVersion != nograph.version)) {
+			buildStraightJumps();
+		}
+
+		stamps.startSearch();
+		open.reset();
+
+		see(start);
+		parent[start] = start;
+		g[start] = 0;
+		f[start] = dist(start, goal);
+		open.add(start);
+
+		while (!open.isEmpty()) {
+			int s = open.get();
+
+			if (s == goal) {
+				return reconstructPath(start, s);
+			}
+
+			closed[s] = true;
+
+			identifySuccessors(s);
+		}
+
+		return null;
+	}
+
+	private void see(int n) {
+		if (stamps.see(n)) {
+			closed[n] = false;
+			parent[n] = -1;
+		}
+	}
+
+	private void identifySuccessors(int s) {
+		int x = nograph.g_x[s];
+		int y = nograph.g_y[s];
+
+		if (parent[s] == s) {
+			addSuccessor(s, x, y, 1, 0);
+			addSuccessor(s, x, y, -1, 0);
+			addSuccessor(s, x, y, 0, 1);
+			addSuccessor(s, x, y, 0, -1);
+			if (nograph.diagonal) {
+				addSuccessor(s, x, y, 1, 1);
+				addSuccessor(s, x, y, -1, 1);
+				addSuccessor(s, x, y, 1, -1);
+				addSuccessor(s, x, y, -1, -1);
+			}
+			return;
+		}
+
+		int dx = Integer.signum(x - nograph.g_x[parent[s]]);
+		int dy = Integer.signum(y - nograph.g_y[parent[s]]);
+
+		if (nograph.diagonal) {
+			if ((dx != 0) && (dy != 0)) {
+				addSuccessor(s, x, y, 0, dy);
+				addSuccessor(s, x, y, dx, 0);
+				addSuccessor(s, x, y, dx, dy);
+				if (!walkable(x - dx, y)) {
+					addSuccessor(s, x, y, -dx, dy);
+				}
+				if (!walkable(x, y - dy)) {
+					addSuccessor(s, x, y, dx, -dy);
+				}
+			} else if (dx != 0) {
+				addSuccessor(s, x, y, dx, 0);
+				if (!walkable(x, y + 1)) {
+					addSuccessor(s, x, y, dx, 1);
+				}
+				if (!walkable(x, y - 1)) {
+					addSuccessor(s, x, y, dx, -1);
+				}
+			} else {
+				addSuccessor(s, x, y, 0, dy);
+				if (!walkable(x + 1, y)) {
+					addSuccessor(s, x, y, 1, dy);
+				}
+				if (!walkable(x - 1, y)) {
+					addSuccessor(s, x, y, -1, dy);
+				}
+			}
+		} else {
+			if (dx != 0) {
+				addSuccessor(s, x, y, dx, 0);
+				addSuccessor(s, x, y, 0, 1);
+				addSuccessor(s, x, y, 0, -1);
+			} else {
+				addSuccessor(s, x, y, 0, dy);
+				addSuccessor(s, x, y, 1, 0);
+				addSuccessor(s, x, y, -1, 0);
+			}
+		}
+	}
+
+	// 4-connected grid : vertical runs stop where an horizontal run would find
+	// a jump point
+	private int jump4(int x, int y, int dx, int dy) {
+		if (dx != 0) {
+			return jumpStraight(x, y, dx, 0);
+		}
+
+		while (true) {
+			y += dy;
+			if (!walkable(x, y)) {
+				return -1;
+			}
+
+			int n = nograph.getNode(x, y);
+			if ((n == goal) || isForced(x, y, 0, dy)) {
+				return n;
+			}
+			if ((jumpStraight(x, y, 1, 0) >= 0) || (jumpStraight(x, y, -1, 0) >= 0)) {
+				return n;
+			}
+		}
+	}
+
+	// 8-connected grid, diagonal moves are allowed along the corners as in
+	// NoGraph
+	private int jump8(int x, int y, int dx, int dy) {
+		if ((dx == 0) || (dy == 0)) {
+			return jumpStraight(x, y, dx, dy);
+		}
+
+		while (true) {
+			x += dx;
+			y += dy;
+			if (!walkable(x, y)) {
+				return -1;
+			}
+
+			int n = nograph.getNode(x, y);
+			if ((n == goal) || isForced(x, y, dx, dy)) {
+				return n;
+			}
+			if ((jumpStraight(x, y, dx, 0) >= 0) || (jumpStraight(x, y, 0, dy) >= 0)) {
+				return n;
+			}
+		}
+	}
+
+	private int jumpStraight(int x, int y, int dx, int dy) {
+		if (useStraightJumps) {
+			int v = straightJumps[straightJumpsIndex(dx, dy) * nograph.sz + nograph.getNode(x, y)];
+			int stop = (v >= 0) ? v : -v - 1;
+			int gx = nograph.g_x[goal];
+			int gy = nograph.g_y[goal];
+			if (dy == 0) {
+				if ((gy == y) && ((gx - x) * dx > 0) && ((stop - gx) * dx >= 0)) {
+					return goal;
+				}
+				return (v >= 0) ? nograph.getNode(v, y) : -1;
+			} else {
+				if ((gx == x) && ((gy - y) * dy > 0) && ((stop - gy) * dy >= 0)) {
+					return goal;
+				}
+				return (v >= 0) ? nograph.getNode(x, v) : -1;
+			}
+		}
+
+		while (true) {
+			x += dx;
+			y += dy;
+			if (!walkable(x, y)) {
+				return -1;
+			}
+
+			int n = nograph.getNode(x, y);
+			if ((n == goal) || isForced(x, y, dx, dy)) {
+				return n;
+			}
+		}
+	}
+
+	private int straightJumpsIndex(int dx, int dy) {
+		if (dy == 0) {
+			return (dx > 0) ? 0 : 1;
+		}
+		return (dy > 0) ? 2 : 3;
+	}
+
+	private void buildStraightJumps() {
+		for (int dir = 0; dir < 4; dir++) {
+			int dx = (dir == 0) ? 1 : ((dir == 1) ? -1 : 0);
+			int dy = (dir == 2) ? 1 : ((dir == 3) ? -1 : 0);
+			if ((dy != 0) && !nograph.diagonal) {
+				// vertical runs also look for horizontal jump points on a
+				// 4-connected grid, they are always scanned
+				break;
+			}
+
+			int offset = dir * nograph.sz;
+			int lineLength = (dy == 0) ? w : h;
+			int nbLines = (dy == 0) ? h : w;
+			for (int line = 0; line < nbLines; line++) {
+				// from the end of the line, backward
+				for (int k = 0; k < lineLength; k++) {
+					int pos = ((dx + dy) > 0) ? (lineLength - 1 - k) : k;
+					int x = (dy == 0) ? pos : line;
+					int y = (dy == 0) ? line : pos;
+					int nx = x + dx;
+					int ny = y + dy;
+					int v;
+					if (!walkable(nx, ny)) {
+						v = -pos - 1;
+					} else if (isForced(nx, ny, dx, dy)) {
+						v = pos + dx + dy;
+					} else {
+						v = straightJumps[offset + nograph.getNode(nx, ny)];
+					}
+					straightJumps[offset + nograph.getNode(x, y)] = v;
+				}
+			}
+		}
+
+		straightJumpsVersion = nograph.version;
+	}
+
+	// does the node (x, y), reached while moving along (dx, dy), have a forced
+	// neighbour
+	private boolean isForced(int x, int y, int dx, int dy) {
+		if (nograph.diagonal) {
+			if ((dx != 0) && (dy != 0)) {
+				return (walkable(x - dx, y + dy) && !walkable(x - dx, y)) || (walkable(x + dx, y - dy) && !walkable(x, y - dy));
+			} else if (dx != 0) {
+				return (walkable(x + dx, y + 1) && !walkable(x, y + 1)) || (walkable(x + dx, y - 1) && !walkable(x, y - 1));
+			} else {
+				return (walkable(x + 1, y + dy) && !walkable(x + 1, y)) || (walkable(x - 1, y + dy) && !walkable(x - 1, y));
+			}
+		} else {
+			if (dx != 0) {
+				return (walkable(x, y - 1) && !walkable(x - dx, y - 1)) || (walkable(x, y + 1) && !walkable(x - dx, y + 1));
+			} else {
+				return (walkable(x - 1, y) && !walkable(x - 1, y - dy)) || (walkable(x + 1, y) && !walkable(x + 1, y - dy));
+			}
+		}
+	}
+
+	private Path reconstructPath(int start, int current) {
+		int nb = 0;
+		for (int n = current; n != start; n = parent[n]) {
+			jumpPoints[nb++] = n;
+		}
+		jumpPoints[nb++] = start;
+
+		// back to the grid path, cell by cell, before pulling it
+		int nbCells = 0;
+		cells[nbCells++] = start;
+		for (int i = nb - 1; i > 0; i--) {
+			int from = jumpPoints[i];
+			int to = jumpPoints[i - 1];
+			int dx = Integer.signum(nograph.g_x[to] - nograph.g_x[from]);
+			int dy = Integer.signum(nograph.g_y[to] - nograph.g_y[from]);
+			int x = nograph.g_x[from];
+			int y = nograph.g_y[from];
+			int c = from;
+			while (c != to) {
+				x += dx;
+				y += dy;
+				c = nograph.getNode(x, y);
+				cells[nbCells++] = c;
+			}
+		}
+
+		return nograph.pullString(cells, nbCells);
+	}
+
+	private boolean walkable(int x, int y) {
+		if ((x < 0) || (y < 0) || (x >= w) || (y >= h)) {
+			return false;
+		}
+		int n = nograph.getNode(x, y);
+		return (n != excluded) && (nograph.g_a[n] || (closedGoalAllowed && (n == goal)));
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * ALT heuristic (A*, Landmarks, Triangle inequality) : the distances from a
+ * few landmarks to every node give, for any two nodes n and t,
+ * |d(L, t) - d(L, n)| <= d(n, t). The landmarks are chosen one after the
+ * other as the node the farthest from the ones already chosen.<br/>
+ * Closing nodes only makes the distances longer, so the bound computed before
+ * stays valid until the distances are computed again, which may be done in
+ * the background.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class Landmarks {
+	private static class Table {
+		private int[][] dist;
+		private int[] nodes;
+		// of the graph the distances were computed on
+		private int version;
+	}
+
+	private class Updater implements Runnable {
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					table = compute(todo.take());
+				}
+			} catch (InterruptedException e) {
+				// shutdown
+			}
+		}
+	}
+
+	public final static int DEFAULT_NB_LANDMARKS = 8;
+	// longest 8-connected grid path for a straight line of length 1
+	private final static float GRID_TO_ANY_ANGLE = 1.0824f;
+
+	private boolean anyAngleBound;
+	private int nbLandmarks;
+	// version of the graph when a node was last opened
+	private volatile int openedVersion;
+	private volatile Table table;
+	private BlockingQueue<NoGraph> todo;
+	private Thread updater;
+
+	public Landmarks(NoGraph nograph, int nbLandmarks) {
+		super();
+
+		this.nbLandmarks = nbLandmarks;
+		anyAngleBound = nograph.diagonal;
+		todo = new LinkedBlockingQueue<NoGraph>();
+		updater = null;
+		openedVersion = 0;
+
+		table = compute(nograph);
+	}
+
+	private Table compute(NoGraph nograph) {
+		Table t = new Table();
+		t.version = nograph.version;
+		t.nodes = new int[nbLandmarks];
+		t.dist = new int[nbLandmarks][];
+
+		int first = 0;
+		while ((first < nograph.size()) && !nograph.isAvailable(first)) {
+			first++;
+		}
+		if (first == nograph.size()) {
+			t.nodes = new int[0];
+			t.dist = new int[0][];
+			return t;
+		}
+
+		FlowField chosen = new FlowField(nograph);
+		FlowField landmark = new FlowField(nograph);
+
+		chosen.compute(new int[] { first });
+		int next = getFarthest(chosen, nograph.size());
+		int nb = 0;
+		while ((nb < nbLandmarks) && (next >= 0)) {
+			landmark.compute(new int[] { next });
+			t.dist[nb] = new int[nograph.size()];
+			for (int n = 0; n < nograph.size(); n++) {
+				t.dist[nb][n] = landmark.getDistance(n);
+			}
+			t.nodes[nb] = next;
+			nb++;
+
+			int[] goals = new int[nb];
+			System.arraycopy(t.nodes, 0, goals, 0, nb);
+			chosen.compute(goals);
+			next = getFarthest(chosen, nograph.size());
+		}
+
+		if (nb < nbLandmarks) {
+			int[] nodes = new int[nb];
+			int[][] dist = new int[nb][];
+			System.arraycopy(t.nodes, 0, nodes, 0, nb);
+			System.arraycopy(t.dist, 0, dist, 0, nb);
+			t.nodes = nodes;
+			t.dist = dist;
+		}
+
+		return t;
+	}
+
+	// lower bound of the grid distance from n to t, 0 until the distances
+	// are computed again after a node has been opened
+	public int estimate(int n, int t) {
+		Table tb = table;
+		if (tb.version < openedVersion) {
+			return 0;
+		}
+
+		int best = 0;
+		for (int i = 0; i < tb.dist.length; i++) {
+			int dn = tb.dist[i][n];
+			int dt = tb.dist[i][t];
+			if ((dn != FlowField.UNREACHABLE) && (dt != FlowField.UNREACHABLE)) {
+				int d = Math.abs(dt - dn);
+				if (d > best) {
+					best = d;
+				}
+			}
+		}
+		return best;
+	}
+
+	// lower bound of the any angle distance from n to t. On an 8-connected
+	// grid, each step of a line of sight is a move of the grid, so the grid
+	// path along it is at most 1.0824 times longer. On a 4-connected grid, a
+	// line of sight may go between two closed corners that the grid paths have
+	// to go around, there is no such ratio and 0 is returned
+	public int estimateAnyAngle(int n, int t) {
+		if (!anyAngleBound) {
+			return 0;
+		}
+		return (int) (estimate(n, t) / GRID_TO_ANY_ANGLE);
+	}
+
+	private int getFarthest(FlowField field, int sz) {
+		int farthest = -1;
+		int max = 0;
+		for (int n = 0; n < sz; n++) {
+			int d = field.getDistance(n);
+			if ((d != FlowField.UNREACHABLE) && (d > max)) {
+				max = d;
+				farthest = n;
+			}
+		}
+		return farthest;
+	}
+
+	public int[] getNodes() {
+		return table.nodes.clone();
+	}
+
+	public boolean isBackground() {
+		return updater != null;
+	}
+
+	// opening a node may make some distances shorter : the current ones are no
+	// longer used, update() should be called with the new state of the graph
+	public void opened(int version) {
+		openedVersion = version;
+	}
+
+	public void shutdown() {
+		if (updater != null) {
+			updater.interrupt();
+			updater = null;
+		}
+	}
+
+	// the following updates are computed on a background thread, the previous
+	// distances being used until they are done
+	public void startBackgroundUpdates() {
+		if (updater == null) {
+			updater = new Thread(new Updater(), "Landmarks");
+			updater.setDaemon(true);
+			updater.start();
+		}
+	}
+
+	// nograph must not be modified afterwards when the updates are done in
+	// the background, a snapshot should be given. Nothing is done when the
+	// distances are already computed on this version of the graph
+	public void update(NoGraph nograph) {
+		if (table.version == nograph.version) {
+			return;
+		}
+
+		if (updater == null) {
+			table = compute(nograph);
+		} else {
+			// only the last state of the board matters
+			todo.clear();
+			todo.add(nograph);
+		}
+	}
+}
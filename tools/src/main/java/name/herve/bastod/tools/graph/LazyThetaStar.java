@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
+
+// See http://aigamedev.com/open/tutorials/lazy-theta-star/
+
+/**
+ * ThetaStar which assumes that every neighbour it reaches is in sight of the
+ * parent of the node being expanded. The line of sight is only checked once,
+ * when the neighbour is itself expanded : if it is broken, the best already
+ * expanded neighbour becomes its parent.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class LazyThetaStar extends NoGraphPathFinderAlgorithm {
+	private boolean[] closed;
+	private int excluding;
+	private int[] f;
+	private int[] g;
+	private int ioe;
+	private MyMinBinaryHeap open;
+	private int[] parent;
+	private SearchStamps stamps;
+
+	public LazyThetaStar(NoGraph nograph) {
+		super(nograph);
+
+		int sz = nograph.size();
+		closed = new boolean[sz];
+		f = new int[sz];
+		g = new int[sz];
+		parent = new int[sz];
+		stamps = new SearchStamps(sz);
+		ioe = -1;
+		excluding = -1;
+
+		open = new MyMinBinaryHeap(sz);
+		open.setCost(f);
+	}
+
+	private void computeCost(int s, int sp) {
+		int gAttempt = g[parent[s]] + h(parent[s], sp);
+		if (gAttempt < g[sp]) {
+			parent[sp] = parent[s];
+			g[sp] = gAttempt;
+		}
+	}
+
+	@Override
+	public Path getPath(int start, int end) {
+		return getPath(start, end, -1);
+	}
+
+	@Override
+	public Path getPath(int sstart, int goal, int excluding) {
+		this.ioe = goal;
+		this.excluding = excluding;
+
+		stamps.startSearch();
+		if (excluding >= 0 && excluding != goal) {
+			see(excluding);
+			closed[excluding] = true;
+		}
+		open.reset();
+
+		see(sstart);
+		parent[sstart] = sstart;
+
+		f[sstart] = g[sstart] + h(sstart);
+		open.add(sstart);
+
+		while (!open.isEmpty()) {
+			int s = open.get();
+			int spInOpen = -2;
+
+			setVertex(s);
+
+			if (s == goal) {
+				return reconstructPath(s);
+			}
+
+			closed[s] = true;
+			nbExpanded++;
+
+			for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+				int sp = nograph.g_nb[s * 8 + nbIdx];
+				if ((sp >= 0) && (nograph.g_a[sp] || (excluding >= 0 && sp == goal))) {
+					see(sp);
+					if (closed[sp]) {
+						continue;
+					}
+
+					spInOpen = open.getIndex(sp);
+					if (spInOpen == -1) {
+						parent[sp] = -1;
+						g[sp] = Integer.MAX_VALUE;
+					}
+
+					int gOld = g[sp];
+
+					computeCost(s, sp);
+
+					if (g[sp] < gOld) {
+						f[sp] = g[sp] + h(sp);
+						if (spInOpen == -1) {
+							open.add(sp);
+						} else {
+							open.updatedCostAtIndex(spInOpen);
+						}
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private int h(int s) {
+		int dx = nograph.g_x[s] - nograph.g_x[ioe];
+		int dy = nograph.g_y[s] - nograph.g_y[ioe];
+
+		int e = (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+		if (landmarks != null) {
+			e = Math.max(e, landmarks.estimateAnyAngle(s, ioe));
+		}
+		return e;
+	}
+
+	private int h(int s1, int s2) {
+		int dx = nograph.g_x[s1] - nograph.g_x[s2];
+		int dy = nograph.g_y[s1] - nograph.g_y[s2];
+
+		return (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+	}
+
+	private Path reconstructPath(int current) {
+		Path path = null;
+
+		if (parent[current] >= 0 && parent[current] != current) {
+			path = reconstructPath(parent[current]);
+			path.add(nograph.getPosition(current));
+		} else {
+			path = new Path();
+		}
+
+		return path;
+	}
+
+	private void see(int n) {
+		if (stamps.see(n)) {
+			closed[n] = false;
+			f[n] = 0;
+			g[n] = 0;
+			parent[n] = -1;
+		}
+	}
+
+	// the parent given to s when it was reached may not be in sight : fall
+	// back on the best neighbour already expanded, there is always one
+	private void setVertex(int s) {
+		if ((parent[s] == s) || nograph.lineOfSight(parent[s], s)) {
+			return;
+		}
+
+		int best = -1;
+		int bestG = Integer.MAX_VALUE;
+		for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+			int sp = nograph.g_nb[s * 8 + nbIdx];
+			if ((sp >= 0) && (sp != excluding) && stamps.isSeen(sp) && closed[sp]) {
+				int gAttempt = g[sp] + h(sp, s);
+				if (gAttempt < bestG) {
+					bestG = gAttempt;
+					best = sp;
+				}
+			}
+		}
+
+		parent[s] = best;
+		g[s] = bestG;
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.Arrays;
+
+import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
+
+/**
+ * Compressed path database : for every source node, the first move of a
+ * shortest path to every target node, computed once on the layout of the
+ * graph. Each row is run-length encoded over the targets, so that a run covers
+ * a region of targets reached through the same neighbour. A path is then read
+ * by walking from one first move to the next.<br/>
+ * Closing nodes afterwards never makes a shortest path shorter : a walk is
+ * still valid as long as it only goes through opened nodes. Opening a node may
+ * do so, it marks its region as changed and the walks entering a changed
+ * region give up. A live search then has to be done.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class NextHopTable {
+	// one Dijkstra per node, and the rows grow with the number of nodes
+	public final static int MAX_NODES = 64 * 64;
+	public final static int REGION_SIZE = 4;
+	private final static byte NO_MOVE = -1;
+
+	private boolean[] changed;
+	private NoGraph nograph;
+	private int nbRegionsY;
+	private int[] rowOffset;
+	private int[] runFirst;
+	private byte[] runMove;
+
+	public NextHopTable(NoGraph nograph) {
+		super();
+
+		this.nograph = nograph;
+
+		nbRegionsY = (nograph.h + REGION_SIZE - 1) / REGION_SIZE;
+		changed = new boolean[((nograph.w + REGION_SIZE - 1) / REGION_SIZE) * nbRegionsY];
+
+		compile();
+	}
+
+	private void compile() {
+		int sz = nograph.size();
+		int[] dist = new int[sz];
+		byte[] move = new byte[sz];
+		MyMinBinaryHeap open = new MyMinBinaryHeap(sz);
+		open.setCost(dist);
+
+		rowOffset = new int[sz + 1];
+		int nbRuns = 0;
+		runFirst = new int[sz];
+		runMove = new byte[sz];
+
+		for (int s = 0; s < sz; s++) {
+			rowOffset[s] = nbRuns;
+
+			// Dijkstra from s, each node keeping the first move leading to it.
+			// s may be closed, for instance by the factory spawning the units
+			Arrays.fill(dist, Integer.MAX_VALUE);
+			Arrays.fill(move, NO_MOVE);
+			open.reset();
+			dist[s] = 0;
+			open.add(s);
+
+			while (!open.isEmpty()) {
+				int u = open.get();
+
+				for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
+					int v = nograph.g_nb[u * 8 + nbIdx];
+					if ((v >= 0) && nograph.g_a[v]) {
+						int alt = dist[u] + (int) (PathFinderAlgorithm.FLOAT_TO_INT * nograph.g_c[u * 8 + nbIdx]);
+						if (alt < dist[v]) {
+							int vInOpen = (dist[v] == Integer.MAX_VALUE) ? -1 : open.getIndex(v);
+							dist[v] = alt;
+							move[v] = (u == s) ? (byte) nbIdx : move[u];
+							if (vInOpen == -1) {
+								open.add(v);
+							} else {
+								open.updatedCostAtIndex(vInOpen);
+							}
+						}
+					}
+				}
+			}
+
+			// the closed targets are never looked up and may join any run
+			byte current = NO_MOVE;
+			boolean first = true;
+			for (int t = 0; t < sz; t++) {
+				if ((t == s) || !nograph.g_a[t]) {
+					continue;
+				}
+				if (first || (move[t] != current)) {
+					if (nbRuns == runFirst.length) {
+						runFirst = Arrays.copyOf(runFirst, nbRuns * 2);
+						runMove = Arrays.copyOf(runMove, nbRuns * 2);
+					}
+					runFirst[nbRuns] = first ? 0 : t;
+					runMove[nbRuns] = move[t];
+					current = move[t];
+					first = false;
+					nbRuns++;
+				}
+			}
+		}
+		rowOffset[sz] = nbRuns;
+
+		runFirst = Arrays.copyOf(runFirst, nbRuns);
+		runMove = Arrays.copyOf(runMove, nbRuns);
+	}
+
+	public int getFirstMove(int s, int t) {
+		int lo = rowOffset[s];
+		int hi = rowOffset[s + 1] - 1;
+		if (hi < lo) {
+			return NO_MOVE;
+		}
+
+		// last run starting at or before t
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (runFirst[mid] <= t) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return runMove[lo];
+	}
+
+	public int getNbRuns() {
+		return runFirst.length;
+	}
+
+	// null when there is no path in the compiled layout, when the walk goes
+	// through a closed node or enters a changed region : a live search is then
+	// needed
+	public Path getPath(int s, int t) {
+		if ((s < 0) || (t < 0) || !nograph.g_a[t] || isChanged(s)) {
+			return null;
+		}
+
+		// keep only the nodes where the line of sight is broken, as ThetaStar
+		// would do
+		Path path = new Path();
+		int anchor = s;
+		int previous = -1;
+		int current = s;
+		int nbSteps = 0;
+
+		while (current != t) {
+			int m = getFirstMove(current, t);
+			if ((m < 0) || (++nbSteps > nograph.sz)) {
+				return null;
+			}
+			int next = nograph.g_nb[current * 8 + m];
+			if (!nograph.g_a[next] || isChanged(next)) {
+				return null;
+			}
+			if ((previous >= 0) && !nograph.lineOfSight(anchor, next)) {
+				path.add(nograph.g_x[previous], nograph.g_y[previous]);
+				anchor = previous;
+			}
+			previous = next;
+			current = next;
+		}
+
+		if (previous >= 0) {
+			path.add(nograph.g_x[previous], nograph.g_y[previous]);
+		}
+
+		return path;
+	}
+
+	private int getRegion(int n) {
+		return (nograph.g_x[n] / REGION_SIZE) * nbRegionsY + nograph.g_y[n] / REGION_SIZE;
+	}
+
+	public boolean isChanged(int n) {
+		return changed[getRegion(n)];
+	}
+
+	// n has been opened since the table was compiled
+	public void markOpened(int n) {
+		if (n >= 0) {
+			changed[getRegion(n)] = true;
+		}
+	}
+}
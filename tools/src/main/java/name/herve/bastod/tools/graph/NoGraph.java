@@ -19,6 +19,7 @@
 package name.herve.bastod.tools.graph;
 
 import java.util.Arrays;
+import java.util.BitSet;
 
 import name.herve.bastod.tools.math.Vector;
 
@@ -26,6 +27,11 @@ import name.herve.bastod.tools.math.Vector;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class NoGraph {
+	// the line of sight cache grows with the square of the number of nodes,
+	// larger grids compute each line of sight
+	public final static int LOS_CACHE_MAX_NODES = 128 * 128;
+
+	boolean diagonal;
 	boolean g_a[];
 	float g_c[];
 
@@ -35,14 +41,24 @@ public class NoGraph {
 	int g_y[];
 	int w;
 	int h;
-	Boolean los[];
+	// line of sight cache, one bit per pair of nodes
+	long losKnown[];
+	long losVisible[];
+	// calls to lineOfSight, and the ones which had to walk the line. Not
+	// counted on the snapshots, which may be searched by several threads
+	boolean countingLoS;
+	long nbLoSChecks;
+	long nbLoSComputed;
 	int sz;
+	// incremented each time a node is closed or opened
+	int version;
 
 	public NoGraph(int w, int h, boolean allowDiagonal) {
 		super();
 
 		this.h = h;
 		this.w = w;
+		this.diagonal = allowDiagonal;
 
 		sz = w * h;
 		g_x = new int[sz];
@@ -51,7 +67,14 @@ public class NoGraph {
 		g_nbnb = new int[sz];
 		g_nb = new int[sz * 8];
 		g_c = new float[sz * 8];
-		los = new Boolean[sz * (sz + 1) / 2];
+		if (sz <= LOS_CACHE_MAX_NODES) {
+			int nbWords = (sz * (sz + 1) / 2 + 63) / 64;
+			losKnown = new long[nbWords];
+			losVisible = new long[nbWords];
+		} else {
+			losKnown = null;
+			losVisible = null;
+		}
 
 		Arrays.fill(g_a, true);
 		Arrays.fill(g_nbnb, 0);
@@ -59,6 +82,8 @@ public class NoGraph {
 		Arrays.fill(g_c, Integer.MAX_VALUE);
 
 		resetLoS();
+		resetLoSCounters();
+		countingLoS = true;
 
 		int id;
 		for (int i = 0; i < w; i++) {
@@ -106,6 +131,30 @@ public class NoGraph {
 		}
 	}
 
+	// read only copy of the current state, sharing the edges, which can be
+	// searched by another thread while this graph keeps changing. It has no
+	// line of sight cache, as filling it would be a write
+	private NoGraph(NoGraph source) {
+		super();
+
+		h = source.h;
+		w = source.w;
+		diagonal = source.diagonal;
+		sz = source.sz;
+		version = source.version;
+
+		g_x = source.g_x;
+		g_y = source.g_y;
+		g_nbnb = source.g_nbnb;
+		g_nb = source.g_nb;
+		g_c = source.g_c;
+		g_a = source.g_a.clone();
+
+		losKnown = null;
+		losVisible = null;
+		countingLoS = false;
+	}
+
 	private void addBidirectionalEdge(int node1, int node2, float c) {
 		addEdge(node1, node2, c);
 		addEdge(node2, node1, c);
@@ -119,7 +168,81 @@ public class NoGraph {
 	}
 
 	public void close(int x, int y) {
-		g_a[getNode(x, y)] = false;
+		int n = getNode(x, y);
+		if (g_a[n]) {
+			g_a[n] = false;
+			version++;
+			forgetLoS(n, true);
+		}
+	}
+
+	// takes the availability of the nodes from another state of the same grid
+	// (see isSameGrid), and its version. Returns the number of nodes which
+	// have changed, listed at the beginning of changed
+	public int follow(NoGraph source, int[] changed) {
+		int nb = 0;
+		for (int n = 0; n < sz; n++) {
+			if (g_a[n] != source.g_a[n]) {
+				g_a[n] = source.g_a[n];
+				forgetLoS(n, !g_a[n]);
+				changed[nb++] = n;
+			}
+		}
+		version = source.version;
+		return nb;
+	}
+
+	// forgets the known lines of sight (visible or not) going through node.
+	// Only the pairs which have node in their bounding box are scanned : with
+	// s <= sp, s is on the left of node or in its column, sp on the right or in
+	// its column, and they are on both sides of its row
+	private void forgetLoS(int node, boolean visible) {
+		if (losKnown == null) {
+			return;
+		}
+
+		int xn = g_x[node];
+		int yn = g_y[node];
+
+		for (int xs = 0; xs <= xn; xs++) {
+			for (int ys = 0; ys < h; ys++) {
+				int s = getNode(xs, ys);
+				int rowStart = (s * sz) - (s * (1 + s) / 2);
+				int yFrom = (ys < yn) ? yn : 0;
+				int yTo = (ys > yn) ? yn : h - 1;
+				for (int x = xn; x < w; x++) {
+					int spFrom = Math.max(getNode(x, yFrom), s);
+					int spTo = getNode(x, yTo);
+					if (spFrom <= spTo) {
+						forgetLoS(s, rowStart, spFrom, spTo, node, visible);
+					}
+				}
+			}
+		}
+	}
+
+	// the known pairs (s, sp) with sp from spFrom to spTo
+	private void forgetLoS(int s, int rowStart, int spFrom, int spTo, int node, boolean visible) {
+		int idx = rowStart + spFrom;
+		int end = rowStart + spTo + 1;
+		while (idx < end) {
+			int word = idx >>> 6;
+			int wordEnd = (word + 1) << 6;
+			long bits = losKnown[word] & (visible ? losVisible[word] : ~losVisible[word]);
+			bits &= -1L << (idx & 63);
+			if (end < wordEnd) {
+				bits &= (1L << (end & 63)) - 1;
+			}
+			while (bits != 0) {
+				int b = Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				int sp = (word << 6) + b - rowStart;
+				if (isOnLine(s, sp, node)) {
+					losKnown[word] &= ~(1L << b);
+				}
+			}
+			idx = wordEnd;
+		}
 	}
 
 	public int getNode(int x, int y) {
@@ -134,6 +257,14 @@ public class NoGraph {
 		return getNode(v.getXInt(), v.getYInt());
 	}
 
+	public long getNbLoSChecks() {
+		return nbLoSChecks;
+	}
+
+	public long getNbLoSComputed() {
+		return nbLoSComputed;
+	}
+
 	public Vector getPosition(int node) {
 		return new Vector(g_x[node], g_y[node]);
 	}
@@ -149,29 +280,59 @@ public class NoGraph {
 		return isAvailable(getNode(x, y));
 	}
 
+	// true for the snapshots of this graph, and the snapshots of them
+	public boolean isSameGrid(NoGraph other) {
+		return g_nb == other.g_nb;
+	}
+
 	public boolean lineOfSight(Vector s, Vector sp) {
 		return lineOfSight(getNode(s), getNode(sp));
 	}
 
-	// see http://en.wikipedia.org/wiki/Bresenham%27s_line_algorithm
 	public boolean lineOfSight(int s, int sp) {
+		if (countingLoS) {
+			nbLoSChecks++;
+		}
+
 		if (s > sp) {
 			int t = sp;
 			sp = s;
 			s = t;
 		}
-		
+
+		if (losKnown == null) {
+			if (countingLoS) {
+				nbLoSComputed++;
+			}
+			return computeLineOfSight(s, sp);
+		}
+
 		int idx = sp + (s * sz) - (s * (1 + s) / 2);
-		
-		if (los[idx] != null) {
-			return los[idx];
+		int word = idx >>> 6;
+		long b = 1L << (idx & 63);
+
+		if ((losKnown[word] & b) != 0) {
+			return (losVisible[word] & b) != 0;
 		}
-		
+
+		losKnown[word] |= b;
+		nbLoSComputed++;
+
+		if (computeLineOfSight(s, sp)) {
+			losVisible[word] |= b;
+			return true;
+		}
+
+		losVisible[word] &= ~b;
+		return false;
+	}
+
+	// see http://en.wikipedia.org/wiki/Bresenham%27s_line_algorithm
+	private boolean computeLineOfSight(int s, int sp) {
 		if (!isAvailable(s) || !isAvailable(sp)) {
-			los[idx] = false;
 			return false;
 		}
-		
+
 		int x0 = g_x[s];
 		int y0 = g_y[s];
 		int x1 = g_x[sp];
@@ -198,7 +359,6 @@ public class NoGraph {
 
 		while (true) {
 			if (!isAvailable(x0, y0)) {
-				los[idx] = false;
 				return false;
 			}
 			if ((x0 == x1) && (y0 == y1)) {
@@ -214,20 +374,156 @@ public class NoGraph {
 				y0 = y0 + sy;
 			}
 		}
-		
-		los[idx] = true;
+
 		return true;
 	}
 
+	public boolean isOnLine(int s, int sp, int node) {
+		return isOnLine(s, sp, node, false);
+	}
+
+	// with corners, also true for the two nodes on the sides of each corner
+	// the line cuts through, that a path on the grid would go around
+	public boolean isOnLine(int s, int sp, int node, boolean corners) {
+		if (s > sp) {
+			int t = sp;
+			sp = s;
+			s = t;
+		}
+
+		int x0 = g_x[s];
+		int y0 = g_y[s];
+		int x1 = g_x[sp];
+		int y1 = g_y[sp];
+		int xn = g_x[node];
+		int yn = g_y[node];
+
+		if ((xn < Math.min(x0, x1)) || (xn > Math.max(x0, x1)) || (yn < Math.min(y0, y1)) || (yn > Math.max(y0, y1))) {
+			return false;
+		}
+
+		int dx = Math.abs(x1 - x0);
+		int dy = Math.abs(y1 - y0);
+		int sx = x0 < x1 ? 1 : -1;
+		int sy = y0 < y1 ? 1 : -1;
+		int err = dx - dy;
+
+		while (true) {
+			if ((x0 == xn) && (y0 == yn)) {
+				return true;
+			}
+			if ((x0 == x1) && (y0 == y1)) {
+				return false;
+			}
+			int e2 = 2 * err;
+			if (corners && (e2 > -dy) && (e2 < dx) && (((x0 + sx == xn) && (y0 == yn)) || ((x0 == xn) && (y0 + sy == yn)))) {
+				return true;
+			}
+			if (e2 > -dy) {
+				err = err - dy;
+				x0 = x0 + sx;
+			}
+			if (e2 < dx) {
+				err = err + dx;
+				y0 = y0 + sy;
+			}
+		}
+	}
+
+	// marks the nodes checked by lineOfSight(s, sp), and the two nodes on the
+	// sides of each corner the line cuts through : closing both of them
+	// separates the ends on the grid, while the line of sight stays
+	public void markLine(int s, int sp, BitSet nodes) {
+		if (s > sp) {
+			int t = sp;
+			sp = s;
+			s = t;
+		}
+
+		int x0 = g_x[s];
+		int y0 = g_y[s];
+		int x1 = g_x[sp];
+		int y1 = g_y[sp];
+
+		int dx = Math.abs(x1 - x0);
+		int dy = Math.abs(y1 - y0);
+		int sx = x0 < x1 ? 1 : -1;
+		int sy = y0 < y1 ? 1 : -1;
+		int err = dx - dy;
+
+		while (true) {
+			nodes.set(getNode(x0, y0));
+			if ((x0 == x1) && (y0 == y1)) {
+				break;
+			}
+			int e2 = 2 * err;
+			if ((e2 > -dy) && (e2 < dx)) {
+				nodes.set(getNode(x0 + sx, y0));
+				nodes.set(getNode(x0, y0 + sy));
+			}
+			if (e2 > -dy) {
+				err = err - dy;
+				x0 = x0 + sx;
+			}
+			if (e2 < dx) {
+				err = err + dx;
+				y0 = y0 + sy;
+			}
+		}
+	}
+
 	public void open(int x, int y) {
-		g_a[getNode(x, y)] = true;
+		int n = getNode(x, y);
+		if (!g_a[n]) {
+			g_a[n] = true;
+			version++;
+			forgetLoS(n, false);
+		}
+	}
+
+	// keeps only the nodes where the line of sight from the previously kept one
+	// is broken, cells[0] being the start, which is not part of the path
+	Path pullString(int[] cells, int nb) {
+		Path path = new Path();
+		if (nb < 2) {
+			return path;
+		}
+
+		int anchor = cells[0];
+		int previous = cells[0];
+		for (int i = 1; i < nb; i++) {
+			int c = cells[i];
+			if ((previous != anchor) && !lineOfSight(anchor, c)) {
+				path.add(getPosition(previous));
+				anchor = previous;
+			}
+			previous = c;
+		}
+		path.add(getPosition(previous));
+
+		return path;
+	}
+
+	public void resetLoSCounters() {
+		nbLoSChecks = 0;
+		nbLoSComputed = 0;
 	}
 
 	public void resetLoS() {
-		Arrays.fill(los, null);
+		if (losKnown != null) {
+			Arrays.fill(losKnown, 0);
+		}
+	}
+
+	public int getVersion() {
+		return version;
 	}
 
 	public int size() {
 		return sz;
 	}
+
+	public NoGraph snapshot() {
+		return new NoGraph(this);
+	}
 }
@@ -22,15 +22,33 @@ package name.herve.bastod.tools.graph;
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public abstract class NoGraphPathFinderAlgorithm extends PathFinderAlgorithm {
+	// only used by AStar3 and ThetaStar
+	protected Landmarks landmarks;
+	protected long nbExpanded;
 	protected NoGraph nograph;
 
 	public NoGraphPathFinderAlgorithm(NoGraph nograph) {
 		super();
 		this.nograph = nograph;
+		landmarks = null;
+		nbExpanded = 0;
+	}
+
+	public Landmarks getLandmarks() {
+		return landmarks;
+	}
+
+	public long getNbExpanded() {
+		return nbExpanded;
 	}
 
 	@Override
 	public Path getPath(Node start, Node end) {
 		return getPath(start.getId(), end.getId());
 	}
+
+	// null to go back to the euclidian distance alone
+	public void setLandmarks(Landmarks landmarks) {
+		this.landmarks = landmarks;
+	}
 }
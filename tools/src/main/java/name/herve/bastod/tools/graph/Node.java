@@ -29,6 +29,7 @@ import name.herve.bastod.tools.math.Vector;
  */
 public class Node implements Iterable<Node> {
 	private boolean available;
+	private Graph graph;
 	private int id;
 	private Map<Node, Float> neighbours;
 	private Vector position;
@@ -47,10 +48,18 @@ public class Node implements Iterable<Node> {
 		return neighbours.get(key);
 	}
 
+	Graph getGraph() {
+		return graph;
+	}
+
 	public int getId() {
 		return id;
 	}
 
+	public int getNbNeighbours() {
+		return neighbours.size();
+	}
+
 	public Vector getPosition() {
 		return position;
 	}
@@ -66,6 +75,13 @@ public class Node implements Iterable<Node> {
 
 	public void setAvailable(boolean available) {
 		this.available = available;
+		if (graph != null) {
+			graph.availabilityChanged(this);
+		}
+	}
+
+	void setGraph(Graph graph) {
+		this.graph = graph;
 	}
 
 	void setId(int id) {
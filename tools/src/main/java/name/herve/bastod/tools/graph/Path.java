@@ -18,33 +18,97 @@
  */
 package name.herve.bastod.tools.graph;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 import name.herve.bastod.tools.math.Vector;
 
 /**
+ * Positions packed in a single array. Once sealed, a path can no longer be
+ * modified and may be shared between several units.
+ * 
  * @author Nicolas HERVE - n.herve@laposte.net
  */
 public class Path implements Iterable<Vector> {
-	private List<Vector> positions;
+	private class PositionIterator implements Iterator<Vector> {
+		private int next;
+
+		public PositionIterator() {
+			super();
+			next = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Vector next() {
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			Vector v = get(next);
+			next++;
+			return v;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// x0, y0, x1, y1, ...
+	private float[] positions;
+	private boolean sealed;
 	private int size;
 
 	public Path() {
 		super();
-		positions = new ArrayList<Vector>();
+		positions = new float[16];
+		sealed = false;
 		size = 0;
 	}
 
-	public boolean add(Vector e) {
+	public boolean add(float x, float y) {
+		if (sealed) {
+			throw new IllegalStateException("Sealed path");
+		}
+		if (2 * size == positions.length) {
+			positions = Arrays.copyOf(positions, 2 * positions.length);
+		}
+		positions[2 * size] = x;
+		positions[2 * size + 1] = y;
 		size++;
-		return positions.add(e);
+		return true;
 	}
-	
+
+	public boolean add(Vector e) {
+		return add(e.getX(), e.getY());
+	}
+
+	// a new vector, changing it does not change the path
+	public Vector get(int i) {
+		return new Vector(positions[2 * i], positions[2 * i + 1]);
+	}
+
+	public float getX(int i) {
+		return positions[2 * i];
+	}
+
+	public float getY(int i) {
+		return positions[2 * i + 1];
+	}
+
+	public boolean isSealed() {
+		return sealed;
+	}
+
 	@Override
 	public Iterator<Vector> iterator() {
-		return positions.iterator();
+		return new PositionIterator();
 	}
 
 //	public void optimize(Vector start) {
@@ -68,6 +132,15 @@ public class Path implements Iterable<Vector> {
 //		}
 //	}
 
+	// also trims the array to the positions
+	public Path seal() {
+		if (!sealed) {
+			positions = Arrays.copyOf(positions, 2 * size);
+			sealed = true;
+		}
+		return this;
+	}
+
 	public int size() {
 		return size;
 	}
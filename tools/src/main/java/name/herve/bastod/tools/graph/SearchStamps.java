@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.Arrays;
+
+/**
+ * Tells which nodes have already been seen by the current search, so that the
+ * per node state only has to be reset when a node is reached, instead of
+ * clearing the arrays of the whole grid before each search.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+class SearchStamps {
+	private int current;
+	private int[] stamps;
+
+	public SearchStamps(int sz) {
+		super();
+
+		stamps = new int[sz];
+		current = 0;
+	}
+
+	public boolean isSeen(int n) {
+		return stamps[n] == current;
+	}
+
+	// returns true when the node is seen for the first time by this search
+	public boolean see(int n) {
+		if (stamps[n] == current) {
+			return false;
+		}
+		stamps[n] = current;
+		return true;
+	}
+
+	public void startSearch() {
+		current++;
+		if (current == 0) {
+			// wrapped around, old stamps could be taken for new ones
+			Arrays.fill(stamps, 0);
+			current = 1;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.Arrays;
+
+/**
+ * Nodes whose closure would cut every path between a start and a goal. They
+ * are the articulation points found on the depth first search tree path from
+ * the start to the goal, so that a single linear pass over the grid answers
+ * the question for all the nodes at once.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class Separators {
+	private boolean blocked;
+	private long[] cut;
+	private int[] disc;
+	private int[] low;
+	private int[] nextNb;
+	private NoGraph nograph;
+	private int[] parent;
+	private int[] stack;
+
+	public Separators(NoGraph nograph) {
+		super();
+
+		this.nograph = nograph;
+
+		int sz = nograph.size();
+		cut = new long[(sz + 63) >>> 6];
+		disc = new int[sz];
+		low = new int[sz];
+		nextNb = new int[sz];
+		parent = new int[sz];
+		stack = new int[sz];
+
+		reset();
+	}
+
+	// adds the separators between start and goal to the ones already known
+	public void add(int start, int goal) {
+		if (blocked || (start == goal)) {
+			return;
+		}
+
+		Arrays.fill(disc, 0);
+
+		int time = 0;
+		int sp = 0;
+		disc[start] = low[start] = ++time;
+		parent[start] = -1;
+		nextNb[start] = 0;
+		stack[sp++] = start;
+
+		while (sp > 0) {
+			int u = stack[sp - 1];
+			if (nextNb[u] < 8) {
+				int v = nograph.g_nb[u * 8 + nextNb[u]];
+				nextNb[u]++;
+				if ((v < 0) || !(nograph.g_a[v] || (v == start) || (v == goal))) {
+					continue;
+				}
+				if (disc[v] == 0) {
+					parent[v] = u;
+					disc[v] = low[v] = ++time;
+					nextNb[v] = 0;
+					stack[sp++] = v;
+				} else if (v != parent[u]) {
+					low[u] = Math.min(low[u], disc[v]);
+				}
+			} else {
+				sp--;
+				int p = parent[u];
+				if (p >= 0) {
+					low[p] = Math.min(low[p], low[u]);
+				}
+			}
+		}
+
+		if (disc[goal] == 0) {
+			// no path at all, whatever is closed
+			blocked = true;
+			return;
+		}
+
+		for (int c = goal; parent[c] != start; c = parent[c]) {
+			int v = parent[c];
+			if (low[c] >= disc[v]) {
+				cut[v >>> 6] |= 1L << v;
+			}
+		}
+	}
+
+	public boolean isBlocked() {
+		return blocked;
+	}
+
+	public boolean isSeparator(int node) {
+		return blocked || ((cut[node >>> 6] & (1L << node)) != 0);
+	}
+
+	public void reset() {
+		Arrays.fill(cut, 0);
+		blocked = false;
+	}
+}
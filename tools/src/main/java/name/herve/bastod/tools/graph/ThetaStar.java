@@ -18,8 +18,6 @@
  */
 package name.herve.bastod.tools.graph;
 
-import java.util.Arrays;
-
 import name.herve.bastod.tools.sortedlist.MyMinBinaryHeap;
 
 // See http://aigamedev.com/open/tutorials/theta-star-any-angle-paths/
@@ -34,6 +32,7 @@ public class ThetaStar extends NoGraphPathFinderAlgorithm {
 	private int ioe;
 	private MyMinBinaryHeap open;
 	private int[] parent;
+	private SearchStamps stamps;
 
 	public ThetaStar(NoGraph nograph) {
 		super(nograph);
@@ -43,6 +42,7 @@ public class ThetaStar extends NoGraphPathFinderAlgorithm {
 		f = new int[sz];
 		g = new int[sz];
 		parent = new int[sz];
+		stamps = new SearchStamps(sz);
 		ioe = -1;
 
 		open = new MyMinBinaryHeap(sz);
@@ -75,15 +75,14 @@ public class ThetaStar extends NoGraphPathFinderAlgorithm {
 		// System.out.println("ThetaStar.getPath(" + sstart + ", " + goal + ", " + excluding + ")");
 		this.ioe = goal;
 
-		Arrays.fill(closed, false);
+		stamps.startSearch();
 		if (excluding >= 0 && excluding != goal) {
+			see(excluding);
 			closed[excluding] = true;
 		}
-		Arrays.fill(f, 0);
-		Arrays.fill(g, 0);
-		Arrays.fill(parent, -1);
 		open.reset();
 
+		see(sstart);
 		parent[sstart] = sstart;
 
 		f[sstart] = g[sstart] + h(sstart);
@@ -99,10 +98,12 @@ public class ThetaStar extends NoGraphPathFinderAlgorithm {
 			}
 
 			closed[s] = true;
+			nbExpanded++;
 
 			for (int nbIdx = 0; nbIdx < 8; nbIdx++) {
 				int sp = nograph.g_nb[s * 8 + nbIdx];
 				if ((sp >= 0) && (nograph.g_a[sp] || (excluding >= 0 && sp == goal))) {
+					see(sp);
 					if (!closed[sp]) {
 						spInOpen = open.getIndex(sp);
 						if (spInOpen == -1) {
@@ -138,7 +139,11 @@ public class ThetaStar extends NoGraphPathFinderAlgorithm {
 		int dx = nograph.g_x[s] - nograph.g_x[ioe];
 		int dy = nograph.g_y[s] - nograph.g_y[ioe];
 
-		return (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+		int e = (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
+		if (landmarks != null) {
+			e = Math.max(e, landmarks.estimateAnyAngle(s, ioe));
+		}
+		return e;
 	}
 
 	private int h(int s1, int s2) {
@@ -148,6 +153,15 @@ public class ThetaStar extends NoGraphPathFinderAlgorithm {
 		return (int) (FLOAT_TO_INT * Math.sqrt(dx * dx + dy * dy));
 	}
 
+	private void see(int n) {
+		if (stamps.see(n)) {
+			closed[n] = false;
+			f[n] = 0;
+			g[n] = 0;
+			parent[n] = -1;
+		}
+	}
+
 	private Path reconstructPath(int current) {
 		Path path = null;
 
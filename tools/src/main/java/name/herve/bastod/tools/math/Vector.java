@@ -28,6 +28,19 @@ import java.util.Locale;
 public class Vector {
 	private final static DecimalFormat df = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
 
+	// angle of (x, y) in degrees, in [0, 360[
+	public static float angleDeg(float x, float y) {
+		double a = Math.atan2(y, x) * 180d / Math.PI;
+		if (a < 0) {
+			a += 360;
+		}
+		return (float) a;
+	}
+
+	public static float length(float x, float y) {
+		return (float) Math.sqrt(x * x + y * y);
+	}
+
 	private float x;
 	private float y;
 
@@ -58,7 +71,7 @@ public class Vector {
 	}
 
 	public float angleDeg() {
-		return (float) (radToDeg(Math.atan2(y, x)));
+		return angleDeg(x, y);
 	}
 
 	public float angleDeg(Vector o) {
@@ -122,7 +135,7 @@ public class Vector {
 	}
 
 	public float length() {
-		return (float) Math.sqrt(x * x + y * y);
+		return length(x, y);
 	}
 
 	public float manhattan(Vector oth) {
@@ -180,6 +193,18 @@ public class Vector {
 		return this;
 	}
 
+	public Vector set(float x, float y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public Vector set(Vector v) {
+		x = v.x;
+		y = v.y;
+		return this;
+	}
+
 	public float squaredDistance(Vector oth) {
 		float dx = oth.x - x;
 		float dy = oth.y - y;
@@ -30,12 +30,17 @@ public class MyMinBinaryHeap implements MySortedList {
 	private int[] heap;
 	private int[] index;
 	private int heapSize;
+	// index[n] is only meaningful when stamp[n] == generation
+	private int[] stamp;
+	private int generation;
 	
 	public MyMinBinaryHeap(int maxSize) {
 		super();
 		
 		heap = new int[maxSize + 1];
 		index = new int[maxSize + 1];
+		stamp = new int[maxSize + 1];
+		generation = 1;
 		heapSize = 0;
 	}
 	
@@ -44,6 +49,7 @@ public class MyMinBinaryHeap implements MySortedList {
 		heapSize++;
 		heap[heapSize] = n;
 		index[n] = heapSize;
+		stamp[n] = generation;
 		bubbleHeap(heapSize);
 	}
 
@@ -151,7 +157,7 @@ public class MyMinBinaryHeap implements MySortedList {
 	
 	@Override
 	public int getIndex(Integer n) {
-		return index[n];
+		return (stamp[n] == generation) ? index[n] : -1;
 	}
 	
 	@Override
@@ -161,9 +167,12 @@ public class MyMinBinaryHeap implements MySortedList {
 
 	@Override
 	public void reset() {
-		Arrays.fill(heap, 0);
-		Arrays.fill(index, -1);
 		heapSize = 0;
+		generation++;
+		if (generation == 0) {
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
 	}
 	
 	@Override
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eviction order, removal while scanning the table and replacement of the
+ * value of a key already cached.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestClockCache {
+	private static int nbErrors = 0;
+
+	private static void check(String what, boolean ok) {
+		System.out.println((ok ? "OK    " : "ERROR ") + what);
+		if (!ok) {
+			nbErrors++;
+		}
+	}
+
+	// the slot where key goes in an empty table
+	private static int getHome(ClockCache<Long> probe, long key) {
+		probe.clear();
+		probe.put(key, key);
+		for (int slot = 0; slot < probe.getTableLength(); slot++) {
+			if (probe.isUsedAt(slot)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	public static void main(String[] args) {
+		testEviction();
+		testPutExisting();
+		testRemoveWhileScanning();
+
+		System.out.println(nbErrors + " errors");
+	}
+
+	private static void testEviction() {
+		ClockCache<Long> cache = new ClockCache<Long>(4);
+		for (long k = 1; k <= 4; k++) {
+			cache.put(k, k);
+		}
+		cache.get(1);
+		cache.get(3);
+		cache.put(5, 5L);
+		check("full cache keeps its capacity", cache.size() == 4);
+		check("one eviction", cache.getEvictions() == 1);
+		check("referenced entries are kept", cache.containsKey(1) && cache.containsKey(3) && cache.containsKey(5));
+		check("an unreferenced entry is evicted", cache.containsKey(2) != cache.containsKey(4));
+
+		// peek does not mark the entries as read
+		cache.clear();
+		cache.resetStatistics();
+		for (long k = 1; k <= 4; k++) {
+			cache.put(k, k);
+		}
+		cache.get(1);
+		cache.get(2);
+		cache.get(3);
+		cache.peek(4);
+		cache.put(5, 5L);
+		check("the only unreferenced entry is evicted", !cache.containsKey(4) && cache.containsKey(1) && cache.containsKey(2) && cache.containsKey(3));
+
+		// the hand clears the bits in a first turn and evicts in the second
+		cache.clear();
+		cache.resetStatistics();
+		for (long k = 1; k <= 4; k++) {
+			cache.put(k, k);
+			cache.get(k);
+		}
+		cache.put(5, 5L);
+		check("all entries referenced : one eviction", (cache.getEvictions() == 1) && (cache.size() == 4) && cache.containsKey(5));
+		for (long k = 6; k <= 20; k++) {
+			cache.put(k, k);
+		}
+		check("evictions counted", (cache.getEvictions() == 16) && (cache.size() == 4));
+		check("the last entry put is kept", cache.peek(20) == 20L);
+	}
+
+	private static void testPutExisting() {
+		ClockCache<String> cache = new ClockCache<String>(2);
+		cache.put(7, "a");
+		cache.put(8, "b");
+		cache.put(7, "c");
+		check("put on an existing key replaces its value", "c".equals(cache.peek(7)));
+		check("put on an existing key does not evict", (cache.size() == 2) && (cache.getEvictions() == 0) && "b".equals(cache.peek(8)));
+
+		cache.put(8, null);
+		check("a null value is cached", cache.containsKey(8) && (cache.peek(8) == null) && (cache.size() == 2));
+	}
+
+	// the same scan as PathFinder.clearCache(Vector), on probe sequences which
+	// go past the end of the table
+	private static void testRemoveWhileScanning() {
+		int capacity = 16;
+		ClockCache<Long> probe = new ClockCache<Long>(capacity);
+		int last = probe.getTableLength() - 1;
+
+		List<Long> keys = new ArrayList<Long>();
+		int nbLast = 0;
+		int nbFirst = 0;
+		for (long k = 1; (nbLast < 5) || (nbFirst < 3); k++) {
+			int home = getHome(probe, k);
+			if ((home == last) && (nbLast < 5)) {
+				keys.add(k);
+				nbLast++;
+			} else if ((home == 0) && (nbFirst < 3)) {
+				keys.add(k);
+				nbFirst++;
+			} else if ((home == 1) && (keys.size() < capacity)) {
+				keys.add(k);
+			}
+		}
+
+		for (int removed = 0; removed < 4; removed++) {
+			ClockCache<Long> cache = new ClockCache<Long>(capacity);
+			for (Long k : keys) {
+				cache.put(k, k);
+			}
+			check("probe sequence wraps around", cache.isUsedAt(last) && cache.isUsedAt(0) && cache.isUsedAt(1) && cache.isUsedAt(2));
+
+			// removes the keys k with k % 4 == removed
+			int nbVisits = 0;
+			int slot = 0;
+			while (slot < cache.getTableLength()) {
+				if (cache.isUsedAt(slot)) {
+					nbVisits++;
+					if ((cache.getValueAt(slot) % 4) == removed) {
+						cache.removeAt(slot);
+						continue;
+					}
+				}
+				slot++;
+			}
+
+			boolean ok = true;
+			int nbKept = 0;
+			for (Long k : keys) {
+				if ((k % 4) == removed) {
+					ok &= !cache.containsKey(k);
+				} else {
+					ok &= (cache.peek(k) == k);
+					nbKept++;
+				}
+			}
+			check("remove " + removed + " mod 4 while scanning (" + nbVisits + " visits)", ok && (cache.size() == nbKept));
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+import java.util.Random;
+
+import name.herve.bastod.tools.math.Vector;
+
+/**
+ * Random grids for the tests comparing a search with AStar3 : cells closed
+ * with a random density, then closed or opened one at a time between the
+ * queries.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+class RandomGrids {
+	private float maxDensity;
+	private int maxH;
+	private int maxW;
+	private float minDensity;
+	private int minH;
+	private int minW;
+	private Random rand;
+
+	RandomGrids(long seed, int minW, int maxW, int minH, int maxH, float minDensity, float maxDensity) {
+		super();
+
+		rand = new Random(seed);
+		this.minW = minW;
+		this.maxW = maxW;
+		this.minH = minH;
+		this.maxH = maxH;
+		this.minDensity = minDensity;
+		this.maxDensity = maxDensity;
+	}
+
+	// closes an opened cell, or opens a closed one when allowed. The node is
+	// returned when it has changed, -1 otherwise
+	int change(NoGraph nograph, boolean opening) {
+		int x = rand.nextInt(nograph.w);
+		int y = rand.nextInt(nograph.h);
+		if (nograph.isAvailable(x, y)) {
+			nograph.close(x, y);
+		} else if (opening) {
+			nograph.open(x, y);
+		} else {
+			return -1;
+		}
+		return nograph.getNode(x, y);
+	}
+
+	NoGraph create(boolean diagonal) {
+		int w = minW + rand.nextInt(maxW - minW + 1);
+		int h = minH + rand.nextInt(maxH - minH + 1);
+		NoGraph nograph = new NoGraph(w, h, diagonal);
+		float density = minDensity + (maxDensity - minDensity) * rand.nextFloat();
+		for (int x = 0; x < w; x++) {
+			for (int y = 0; y < h; y++) {
+				if (rand.nextFloat() < density) {
+					nograph.close(x, y);
+				}
+			}
+		}
+		return nograph;
+	}
+
+	// the paths do not contain their start
+	static float getLength(NoGraph nograph, int start, Path path) {
+		float length = 0;
+		Vector previous = nograph.getPosition(start);
+		for (Vector p : path) {
+			length += previous.distance(p);
+			previous = p;
+		}
+		return length;
+	}
+
+	// only lines of sight, up to the goal
+	static boolean isValid(NoGraph nograph, int start, int end, Path path) {
+		Vector previous = nograph.getPosition(start);
+		for (Vector p : path) {
+			if (!nograph.lineOfSight(previous, p)) {
+				return false;
+			}
+			previous = p;
+		}
+		return previous.equals(nograph.getPosition(end));
+	}
+
+	int nextInt(int n) {
+		return rand.nextInt(n);
+	}
+
+	// an opened node, or -1 when the draw falls on a closed one
+	int nextNode(NoGraph nograph) {
+		int n = rand.nextInt(nograph.size());
+		return nograph.isAvailable(n) ? n : -1;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+/**
+ * HPAStar against AStar3 on random grids : a path is found by both or by none,
+ * and the HPAStar path only follows lines of sight to the goal. Between the
+ * queries, a few cells are closed or opened and given to markChanged, so that
+ * only their clusters are rebuilt.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestHPAStar {
+	public static void main(String[] args) {
+		int nbErrors = 0;
+		nbErrors += test(false, 4, 1);
+		nbErrors += test(false, HPAStar.DEFAULT_CLUSTER_SIZE, 2);
+		nbErrors += test(true, 4, 3);
+		nbErrors += test(true, HPAStar.DEFAULT_CLUSTER_SIZE, 4);
+		System.out.println(nbErrors + " errors");
+	}
+
+	private static int test(boolean diagonal, int clusterSize, long seed) {
+		RandomGrids grids = new RandomGrids(seed, 10, 49, 10, 39, 0.1f, 0.4f);
+		int nbPaths = 0;
+		int nbChanges = 0;
+		int nbErrors = 0;
+
+		for (int grid = 0; grid < 40; grid++) {
+			NoGraph nograph = grids.create(diagonal);
+			AStar3 astar = new AStar3(nograph);
+			HPAStar hpa = new HPAStar(nograph, clusterSize);
+
+			for (int q = 0; q < 100; q++) {
+				if ((q % 5) == 4) {
+					for (int c = grids.nextInt(4); c >= 0; c--) {
+						hpa.markChanged(grids.change(nograph, true));
+						nbChanges++;
+					}
+				}
+
+				int s = grids.nextNode(nograph);
+				int e = grids.nextNode(nograph);
+				if ((s < 0) || (e < 0) || (s == e)) {
+					continue;
+				}
+
+				Path expected = astar.getPath(s, e);
+				Path found = hpa.getPath(s, e);
+				String query = nograph.getPosition(s) + " -> " + nograph.getPosition(e);
+				if ((expected == null) != (found == null)) {
+					System.out.println("ERROR " + query + " : AStar3 " + (expected != null) + ", HPAStar " + (found != null));
+					nbErrors++;
+					continue;
+				}
+				if (found == null) {
+					continue;
+				}
+				nbPaths++;
+
+				if (!RandomGrids.isValid(nograph, s, e, found)) {
+					System.out.println("ERROR " + query + " : HPAStar path blocked or not reaching the goal");
+					nbErrors++;
+				}
+			}
+		}
+
+		System.out.println((diagonal ? "8" : "4") + "-connected, clusters of " + clusterSize + " : " + nbPaths + " paths, " + nbChanges + " changes, " + nbErrors + " errors");
+		return nbErrors;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+/**
+ * JumpPointSearch against AStar3 on random grids : a path is found by both or
+ * by none, and the pulled JPS path is made of lines of sight to the goal and
+ * is not longer than the AStar3 grid path. Cells are closed and opened between
+ * the queries, so that the jump tables have to be rebuilt.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestJumpPointSearch {
+	public static void main(String[] args) {
+		int nbErrors = 0;
+		nbErrors += test(false, 1);
+		nbErrors += test(true, 2);
+		System.out.println(nbErrors + " errors");
+	}
+
+	private static int test(boolean diagonal, long seed) {
+		RandomGrids grids = new RandomGrids(seed, 10, 49, 10, 39, 0.1f, 0.4f);
+		int nbPaths = 0;
+		int nbErrors = 0;
+
+		for (int grid = 0; grid < 50; grid++) {
+			NoGraph nograph = grids.create(diagonal);
+			AStar3 astar = new AStar3(nograph);
+			JumpPointSearch jps = new JumpPointSearch(nograph);
+
+			for (int q = 0; q < 100; q++) {
+				if ((q % 10) == 9) {
+					grids.change(nograph, true);
+				}
+
+				int s = grids.nextNode(nograph);
+				int e = grids.nextNode(nograph);
+				if ((s < 0) || (e < 0) || (s == e)) {
+					continue;
+				}
+
+				Path expected = astar.getPath(s, e);
+				Path found = jps.getPath(s, e);
+				String query = nograph.getPosition(s) + " -> " + nograph.getPosition(e);
+				if ((expected == null) != (found == null)) {
+					System.out.println("ERROR " + query + " : AStar3 " + (expected != null) + ", JPS " + (found != null));
+					nbErrors++;
+					continue;
+				}
+				if (found == null) {
+					continue;
+				}
+				nbPaths++;
+
+				if (!RandomGrids.isValid(nograph, s, e, found)) {
+					System.out.println("ERROR " + query + " : JPS path blocked or not reaching the goal");
+					nbErrors++;
+				}
+				float le = RandomGrids.getLength(nograph, s, expected);
+				float lf = RandomGrids.getLength(nograph, s, found);
+				if (lf > le + 0.001f) {
+					System.out.println("ERROR " + query + " : JPS " + lf + ", AStar3 " + le);
+					nbErrors++;
+				}
+			}
+		}
+
+		System.out.println((diagonal ? "8" : "4") + "-connected : " + nbPaths + " paths, " + nbErrors + " errors");
+		return nbErrors;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012, 2013 Nicolas HERVE
+ * 
+ * This file is part of BASToD.
+ * 
+ * BASToD is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * BASToD is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with BASToD. If not, see <http://www.gnu.org/licenses/>.
+ */
+package name.herve.bastod.tools.graph;
+
+/**
+ * The walks in a NextHopTable, compiled once, while cells are closed and
+ * opened afterwards. A walk only follows lines of sight up to the goal, and
+ * as long as cells are only closed, it is not longer than the AStar3 grid
+ * path. When it gives up, a live search is done instead, as in PathFinder, and
+ * a path is found if and only if AStar3 finds one.
+ * 
+ * @author Nicolas HERVE - n.herve@laposte.net
+ */
+public class TestNextHopTable {
+	public static void main(String[] args) {
+		int nbErrors = 0;
+		nbErrors += test(false, 1);
+		nbErrors += test(true, 2);
+		System.out.println(nbErrors + " errors");
+	}
+
+	private static int test(boolean diagonal, long seed) {
+		RandomGrids grids = new RandomGrids(seed, 8, 32, 8, 27, 0.1f, 0.3f);
+		int nbWalks = 0;
+		int nbLiveSearches = 0;
+		int nbOpenedFirst = 0;
+		int nbErrors = 0;
+
+		for (int grid = 0; grid < 20; grid++) {
+			NoGraph nograph = grids.create(diagonal);
+			NextHopTable table = new NextHopTable(nograph);
+			AStar3 astar = new AStar3(nograph);
+			boolean opened = false;
+
+			for (int q = 0; q < 400; q++) {
+				// only closed cells in the first half, then also opened ones
+				if ((q % 10) == 9) {
+					int n = grids.change(nograph, q >= 200);
+					if ((n >= 0) && nograph.isAvailable(n)) {
+						table.markOpened(n);
+						opened = true;
+					}
+				}
+
+				int s = grids.nextNode(nograph);
+				int e = grids.nextNode(nograph);
+				if ((s < 0) || (e < 0) || (s == e)) {
+					continue;
+				}
+
+				Path expected = astar.getPath(s, e);
+				Path walk = table.getPath(s, e);
+				Path found = walk;
+				if (walk == null) {
+					found = astar.getPath(s, e);
+					nbLiveSearches++;
+				} else {
+					nbWalks++;
+					if (opened) {
+						nbOpenedFirst++;
+					}
+				}
+
+				String query = nograph.getPosition(s) + " -> " + nograph.getPosition(e);
+				if (table.isChanged(s) && (walk != null)) {
+					System.out.println("ERROR " + query + " : walk from a changed region");
+					nbErrors++;
+				}
+				if ((expected == null) != (found == null)) {
+					System.out.println("ERROR " + query + " : AStar3 " + (expected != null) + ", walk or live search " + (found != null));
+					nbErrors++;
+					continue;
+				}
+				if (walk == null) {
+					continue;
+				}
+
+				if (!RandomGrids.isValid(nograph, s, e, walk)) {
+					System.out.println("ERROR " + query + " : walk blocked or not reaching the goal");
+					nbErrors++;
+				}
+				float le = RandomGrids.getLength(nograph, s, expected);
+				float lw = RandomGrids.getLength(nograph, s, walk);
+				if (!opened && (lw > le + 0.001f)) {
+					System.out.println("ERROR " + query + " : walk " + lw + ", AStar3 " + le);
+					nbErrors++;
+				}
+			}
+		}
+
+		if ((nbLiveSearches == 0) || (nbOpenedFirst == 0)) {
+			System.out.println("ERROR the walks and the live searches are not both tested");
+			nbErrors++;
+		}
+
+		System.out.println((diagonal ? "8" : "4") + "-connected : " + nbWalks + " walks (" + nbOpenedFirst + " after an opening), " + nbLiveSearches + " live searches, " + nbErrors + " errors");
+		return nbErrors;
+	}
+}